@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updating of the {@code <modules>} of the parent {@code pom.xml} via
+ * {@link GenerateTestModulesMojo#addModules(String, Path, List)}. The parent contains the modules of a previous run
+ * already, which is the common case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddModulesBenchmark {
+
+    @Param({ "1000", "10000" })
+    int modules;
+
+    private final Path path = Paths.get("pom.xml");
+    private List<String> moduleNames;
+    private String parentPom;
+
+    @Setup
+    public void setup() {
+        moduleNames = new ArrayList<>(modules);
+        for (int i = 0; i < modules; i++) {
+            moduleNames.add("foo-artifact-" + i);
+        }
+        parentPom = GenerateTestModulesMojo.addModules("<project>\n"
+                + "    <artifactId>run-tests</artifactId>\n"
+                + "    <modules>\n"
+                + "        <module>rpkgtests</module>\n"
+                + "    </modules>\n"
+                + "</project>\n", path, moduleNames);
+    }
+
+    @Benchmark
+    public String addModules() {
+        return GenerateTestModulesMojo.addModules(parentPom, path, moduleNames);
+    }
+
+    @Benchmark
+    public List<String> getManagedModules() {
+        return GenerateTestModulesMojo.getManagedModules(parentPom);
+    }
+}
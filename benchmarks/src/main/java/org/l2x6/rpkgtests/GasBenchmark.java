@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading and writing of test jar catalogs via {@link Gas}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GasBenchmark {
+
+    @Param({ "10", "1000", "50000" })
+    int entries;
+
+    private List<Gav> gavs;
+    private String catalog;
+
+    @Setup
+    public void setup() throws IOException {
+        gavs = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            gavs.add(new Gav("org.foo.group" + (i % 17), "foo-artifact-" + i, "1.2." + (i % 5)));
+        }
+        catalog = write();
+    }
+
+    @Benchmark
+    public Gas read() {
+        return Gas.read(new StringReader(catalog), "test-jars.xml");
+    }
+
+    @Benchmark
+    public void readStreaming(Blackhole blackhole) {
+        Gas.read(new StringReader(catalog), "test-jars.xml", blackhole::consume);
+    }
+
+    @Benchmark
+    public String write() throws IOException {
+        final StringWriter out = new StringWriter(entries * 160);
+        Gas.write(gavs, out, "UTF-8");
+        return out.toString();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The POM transformation performed by {@code RepackageAndInstallTestJarsMojo.transform()}. The POMs are transformed
+ * in memory, so that the result does not depend on the speed of the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomTransformerBenchmark {
+
+    @Param({ "10", "5000" })
+    int dependencies;
+
+    private byte[] pom;
+    private PomTransformer transformer;
+
+    @Setup
+    public void setup() {
+        pom = Poms.pom(dependencies).getBytes(StandardCharsets.UTF_8);
+        transformer = new PomTransformer(new Gav("org.foo", "foo-module", "1.2.3"), "foo-module-rpkgtests");
+    }
+
+    @Benchmark
+    public byte[] transform() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(pom.length);
+        transformer.transform(new ByteArrayInputStream(pom), out, "pom.xml");
+        return out.toByteArray();
+    }
+}
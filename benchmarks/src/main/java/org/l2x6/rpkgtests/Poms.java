@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+/**
+ * Synthetic {@code pom.xml} documents for the benchmarks.
+ */
+public class Poms {
+
+    /**
+     * @param dependencyCount the number of dependencies to generate; every other one is in the {@code test} scope
+     * @return a {@code pom.xml} document with a parent, a {@code dependencyManagement} section, the given number of
+     *         dependencies and a {@code build} section
+     */
+    public static String pom(int dependencyCount) {
+        final StringBuilder sb = new StringBuilder(256 + dependencyCount * 200);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <parent>\n")
+                .append("        <groupId>org.foo</groupId>\n")
+                .append("        <artifactId>foo-parent</artifactId>\n")
+                .append("        <version>1.2.3</version>\n")
+                .append("    </parent>\n")
+                .append("    <artifactId>foo-module</artifactId>\n")
+                .append("    <name>Foo Module</name>\n")
+                .append("    <description>A module with ").append(dependencyCount)
+                .append(" dependencies</description>\n")
+                .append("    <properties>\n")
+                .append("        <foo.version>1.0</foo.version>\n")
+                .append("    </properties>\n")
+                .append("    <dependencyManagement>\n")
+                .append("        <dependencies>\n");
+        for (int i = 0; i < dependencyCount; i++) {
+            appendDependency(sb, i, "${foo.version}", null);
+        }
+        sb.append("        </dependencies>\n")
+                .append("    </dependencyManagement>\n")
+                .append("    <dependencies>\n");
+        for (int i = 0; i < dependencyCount; i++) {
+            appendDependency(sb, i, null, i % 2 == 0 ? "test" : null);
+        }
+        sb.append("    </dependencies>\n")
+                .append("    <build>\n")
+                .append("        <plugins>\n")
+                .append("            <plugin>\n")
+                .append("                <artifactId>maven-surefire-plugin</artifactId>\n")
+                .append("            </plugin>\n")
+                .append("        </plugins>\n")
+                .append("    </build>\n")
+                .append("</project>\n");
+        return sb.toString();
+    }
+
+    static void appendDependency(StringBuilder sb, int i, String version, String scope) {
+        sb.append("            <dependency>\n")
+                .append("                <groupId>org.foo.group").append(i % 17).append("</groupId>\n")
+                .append("                <artifactId>foo-artifact-").append(i).append("</artifactId>\n");
+        if (version != null) {
+            sb.append("                <version>").append(version).append("</version>\n");
+        }
+        if (scope != null) {
+            sb.append("                <scope>").append(scope).append("</scope>\n");
+        }
+        sb.append("            </dependency>\n");
+    }
+}
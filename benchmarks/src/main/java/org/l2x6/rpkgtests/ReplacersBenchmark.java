@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.l2x6.rpkgtests.GenerateTestModulesMojo.Replacers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Deriving of the artifactIds and directory names of the generated modules via {@link Replacers#apply(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplacersBenchmark {
+
+    private static final String[] ARTIFACT_IDS = { "camel-core", "camel-quarkus-integration-test-foo",
+            "quarkus-resteasy-deployment", "my-artifact" };
+
+    private Replacers replacers;
+
+    @Setup
+    public void setup() {
+        replacers = Replacers.parse("/^camel-quarkus-integration-test-/cq-/, /-deployment$/-dpl/, /^camel-/c-/");
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        for (String artifactId : ARTIFACT_IDS) {
+            blackhole.consume(replacers.apply(artifactId));
+        }
+    }
+}
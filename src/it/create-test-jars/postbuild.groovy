@@ -28,6 +28,11 @@ assertFilesEqual(baseDir, 'run-tests-pom.expected.xml', 'run-tests/pom.xml')
 assertFilesEqual(baseDir, 'run-testable-1-pom.expected.xml', 'run-tests/testable-1/pom.xml')
 assertFilesEqual(baseDir, 'run-testable-1-pom.expected.xml', 'run-tests/testable-1/pom.xml')
 
+// the manifest of the generated files used by the next clean
+final String manifest = new String(Files.readAllBytes(baseDir.resolve('run-tests/.rpkgtests-manifest')), 'UTF-8')
+assert manifest.contains('testable-1/\n')
+assert manifest.contains('testable-2/\n')
+
 // make sure the tests were executed and passed
 assert new String(Files.readAllBytes(baseDir.resolve('run-tests/testable-1/target/surefire-reports/org.l2x6.rpkgtests.create.test.jars.test1.Hello1Test.txt')), 'UTF-8')
         .contains('Tests run: 1, Failures: 0, Errors: 0, Skipped: 0')
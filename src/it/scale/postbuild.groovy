@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.nio.charset.StandardCharsets
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
+import java.nio.file.Path
+
+@groovy.transform.Field
+final static String BASE_PATH = 'org/l2x6/rpkgtests/scale/mock/'
+
+final Path baseDir = basedir.toPath()
+final Properties scale = new Properties()
+scale.load(new StringReader(read(baseDir.resolve('mock-sources/scale.properties'))))
+final int count = Integer.parseInt(scale.getProperty('count'))
+final int width = Integer.parseInt(scale.getProperty('width'))
+/* The first SNAPSHOT family starts at 75 */
+assert count >= 100 : 'rpkgtests.scale.count must be at least 100'
+final String firstRelease = 'scale-mock-' + String.format('%0' + width + 'd', 0)
+final String firstSnapshot = 'scale-mock-' + String.format('%0' + width + 'd', 75)
+final String secondSnapshot = 'scale-mock-' + String.format('%0' + width + 'd', 76)
+
+// create-test-jars-file
+final String releaseCatalog = read(baseDir.resolve('catalog-release/target/test-jars.xml'))
+assert countOccurrences(releaseCatalog, '<testArtifact>') == Integer.parseInt(scale.getProperty('releaseCount'))
+final String snapshotCatalog = read(baseDir.resolve('catalog-snapshot/target/test-jars.xml'))
+assert countOccurrences(snapshotCatalog, '<testArtifact>') == Integer.parseInt(scale.getProperty('snapshotCount'))
+
+// rpkgtests: check the first release and the first SNAPSHOT
+assertRepackaged(firstRelease, '1.0.0')
+assertRepackaged(firstSnapshot, '0.0.1-SNAPSHOT')
+
+// create-test-modules
+assert countOccurrences(read(baseDir.resolve('run-tests/pom.xml')), '<module>') == count + 1
+final String moduleDir = secondSnapshot.replace('scale-mock-', '')
+final String classpath = read(baseDir.resolve('run-tests/.rpkgtests-classpath/' + moduleDir + '.txt'))
+assert classpath.contains('/' + firstSnapshot + '-0.0.1-SNAPSHOT.jar ') : 'compile dependency missing: ' + classpath
+assert classpath.contains('/scale-mock-testlib-3-1.0.0.jar ') : 'test dependency of the parent missing: ' + classpath
+assert classpath.contains('/scale-mock-testlib-7-1.0.0.jar ') : 'transitive test dependency missing: ' + classpath
+
+// The measurements
+final Map<String, Path> reports = new TreeMap<>()
+for (String module : ['catalog-release', 'catalog-snapshot', 'generate']) {
+    final Path dir = baseDir.resolve(module + '/target/rpkgtests-perf')
+    final DirectoryStream<Path> jsonFiles = Files.newDirectoryStream(dir, '*.json')
+    try {
+        for (Path jsonFile : jsonFiles) {
+            reports.put(module + '/' + jsonFile.getFileName().toString().replace('.json', ''), jsonFile)
+        }
+    } finally {
+        jsonFiles.close()
+    }
+}
+assert reports.keySet().contains('generate/rpkgtests')
+assert reports.keySet().contains('generate/create-test-modules')
+
+/* Generous default budgets growing with count; they catch gross regressions rather than small ones */
+final long maxWallTimeMillis = Long.getLong('rpkgtests.scale.maxWallTimeMillis', 60_000L + 120L * count)
+final long maxPeakHeapBytes = Long.getLong('rpkgtests.scale.maxPeakHeapBytes', (384L << 20) + (256L << 10) * count)
+final StringBuilder summary = new StringBuilder()
+final List<String> overBudget = new ArrayList<>()
+summary.append('# ').append(count).append(' synthetic test jars\n')
+summary.append('# budget: wallTimeMillis <= ').append(maxWallTimeMillis).append(', peakHeapBytes <= ')
+        .append(maxPeakHeapBytes).append('\n')
+reports.each { key, path ->
+    final String json = read(path)
+    final double wallTimeMillis = Double.parseDouble(jsonNumber(json, 'wallTimeMillis'))
+    final long peakHeapBytes = Long.parseLong(jsonNumber(json, 'peakHeapBytes'))
+    summary.append(key).append('.wallTimeMillis=').append(jsonNumber(json, 'wallTimeMillis')).append('\n')
+    summary.append(key).append('.peakHeapBytes=').append(peakHeapBytes).append('\n')
+    if (wallTimeMillis > maxWallTimeMillis || peakHeapBytes > maxPeakHeapBytes) {
+        overBudget.add(key + ' (wallTimeMillis=' + wallTimeMillis + ', peakHeapBytes=' + peakHeapBytes + ')')
+    }
+}
+print summary
+final Path summaryPath = baseDir.resolve('target/scale-summary.properties')
+Files.createDirectories(summaryPath.getParent())
+Files.write(summaryPath, summary.toString().getBytes(StandardCharsets.UTF_8))
+assert overBudget.isEmpty() : 'Over budget: ' + overBudget
+
+// Methods
+
+String read(Path path) {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8)
+}
+
+int countOccurrences(String text, String substring) {
+    int result = 0
+    for (int i = text.indexOf(substring); i >= 0; i = text.indexOf(substring, i + substring.length())) {
+        result++
+    }
+    return result
+}
+
+String jsonNumber(String json, String key) {
+    final java.util.regex.Matcher m = json =~ ('"' + key + '": ([0-9.]+)')
+    assert m.find() : 'No ' + key + ' in ' + json
+    return m.group(1)
+}
+
+void assertRepackaged(String artifactId, String version) {
+    final String prefix = BASE_PATH + artifactId + '-rpkgtests/' + version + '/' + artifactId + '-rpkgtests-' + version
+    assertExists(prefix + '.pom')
+    assertExists(prefix + '.jar')
+    final String testClasses = read(localRepositoryPath.toPath().resolve(prefix + '-test-classes.txt'))
+    final String pkg = 'org/l2x6/rpkgtests/scale/' + artifactId.replace('scale-mock-', 'mock')
+    assert testClasses == pkg + '/' + artifactId.replace('scale-mock-', 'Mock') + 'Test.java\n' : testClasses
+}
+
+void assertExists(String path) {
+    assert Files.exists(localRepositoryPath.toPath().resolve(path)) : path + ' does not exist'
+}
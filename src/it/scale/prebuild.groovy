@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import groovy.transform.Field
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.text.SimpleDateFormat
+import java.util.jar.Attributes
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+import java.util.zip.ZipEntry
+
+/*
+ * Generates a mock repository of synthetic artifacts directly into the local repository of this IT:
+ *
+ * - scale-mock-parent, the root parent managing the versions of the test libraries
+ * - scale-mock-family-NN-parent, one parent per family of FAMILY_SIZE artifacts, each adding a test scoped
+ *   dependency on one of the test libraries to all its children
+ * - scale-mock-testlib-N, test libraries forming a chain of compile and runtime dependencies, so that resolving any
+ *   of them yields a tree rather than a single node
+ * - scale-mock-NNNN, the artifacts having a -tests jar, each depending on its predecessor in the same family and on
+ *   one of the test libraries in test scope
+ *
+ * Every fourth family has a SNAPSHOT version, the rest are releases. The artifacts are written as if they were
+ * installed locally, so that they are resolvable without any remote repository. Copies of the pom.xml files of the
+ * scale-mock-NNNN artifacts are written to mock-sources/[release|snapshot] for create-test-jars-file to scan.
+ */
+
+@Field
+final static String GROUP_ID = 'org.l2x6.rpkgtests.scale.mock'
+@Field
+final static String RELEASE = '1.0.0'
+@Field
+final static String SNAPSHOT = '0.0.1-SNAPSHOT'
+@Field
+final static int FAMILY_SIZE = 25
+@Field
+final static int TESTLIB_COUNT = 8
+@Field
+final static String LAST_UPDATED = new SimpleDateFormat('yyyyMMddHHmmss').with {
+    setTimeZone(TimeZone.getTimeZone('UTC'))
+    format(new Date())
+}
+
+final int count = Integer.getInteger('rpkgtests.scale.count', 500)
+final Path repo = localRepositoryPath.toPath()
+final Path sources = basedir.toPath().resolve('mock-sources')
+
+/* Start from scratch, including the -rpkgtests artifacts, so that the measurements of subsequent runs are comparable */
+deleteRecursively(repo.resolve(GROUP_ID.replace('.', '/')))
+deleteRecursively(sources)
+
+for (String version : [RELEASE, SNAPSHOT]) {
+    install(repo, 'scale-mock-parent', version, rootParentPom(version), false)
+}
+for (int i = 0; i < TESTLIB_COUNT; i++) {
+    install(repo, testlib(i), RELEASE, testlibPom(i), false)
+}
+
+final int width = Math.max(4, String.valueOf(count - 1).length())
+final int familyCount = (count + FAMILY_SIZE - 1).intdiv(FAMILY_SIZE)
+int releaseCount = 0
+int snapshotCount = 0
+for (int f = 0; f < familyCount; f++) {
+    final boolean snapshot = f % 4 == 3
+    final String version = snapshot ? SNAPSHOT : RELEASE
+    final String familyId = family(f)
+    install(repo, familyId, version, familyParentPom(f, version), false)
+    for (int i = f * FAMILY_SIZE; i < Math.min(count, (f + 1) * FAMILY_SIZE); i++) {
+        final String artifactId = 'scale-mock-' + String.format('%0' + width + 'd', i)
+        String predecessor = null
+        if (i % FAMILY_SIZE != 0) {
+            predecessor = 'scale-mock-' + String.format('%0' + width + 'd', i - 1)
+        }
+        final String pom = mockPom(familyId, artifactId, version, predecessor, i % TESTLIB_COUNT)
+        install(repo, artifactId, version, pom, true)
+        final Path sourcePom = sources.resolve(snapshot ? 'snapshot' : 'release').resolve(artifactId).resolve('pom.xml')
+        write(sourcePom, pom)
+        if (snapshot) {
+            snapshotCount++
+        } else {
+            releaseCount++
+        }
+    }
+}
+
+/* Read by postbuild.groovy */
+write(sources.resolve('scale.properties'), """count=${count}
+releaseCount=${releaseCount}
+snapshotCount=${snapshotCount}
+width=${width}
+""")
+println "Generated ${count} synthetic test jars (${releaseCount} releases, ${snapshotCount} SNAPSHOTs) in ${repo}"
+
+return true
+
+// Methods
+
+String testlib(int i) {
+    return 'scale-mock-testlib-' + i
+}
+
+String family(int f) {
+    return 'scale-mock-family-' + String.format('%02d', f) + '-parent'
+}
+
+String packageName(String artifactId) {
+    return 'org/l2x6/rpkgtests/scale/' + artifactId.replace('scale-mock-', 'mock').replace('-', '')
+}
+
+String className(String artifactId) {
+    return artifactId.replace('scale-mock-', 'Mock').replace('-', '').capitalize()
+}
+
+String dependency(String artifactId, String version, String scope) {
+    final StringBuilder sb = new StringBuilder()
+    sb.append('\n    <dependency>')
+    sb.append('\n      <groupId>').append(GROUP_ID).append('</groupId>')
+    sb.append('\n      <artifactId>').append(artifactId).append('</artifactId>')
+    if (version != null) {
+        sb.append('\n      <version>').append(version).append('</version>')
+    }
+    if (scope != null) {
+        sb.append('\n      <scope>').append(scope).append('</scope>')
+    }
+    sb.append('\n    </dependency>')
+    return sb.toString()
+}
+
+String parent(String artifactId, String version) {
+    return """
+  <parent>
+    <groupId>${GROUP_ID}</groupId>
+    <artifactId>${artifactId}</artifactId>
+    <version>${version}</version>
+  </parent>"""
+}
+
+String project(String body) {
+    return """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+  <modelVersion>4.0.0</modelVersion>${body}
+</project>
+"""
+}
+
+String rootParentPom(String version) {
+    final StringBuilder managed = new StringBuilder()
+    for (int i = 0; i < TESTLIB_COUNT; i++) {
+        managed.append(dependency(testlib(i), '${scale-mock-testlib.version}', null).replace('\n', '\n    '))
+    }
+    return project("""
+  <groupId>${GROUP_ID}</groupId>
+  <artifactId>scale-mock-parent</artifactId>
+  <version>${version}</version>
+  <packaging>pom</packaging>
+
+  <properties>
+    <scale-mock-testlib.version>${RELEASE}</scale-mock-testlib.version>
+    <maven.compiler.source>1.8</maven.compiler.source>
+    <maven.compiler.target>1.8</maven.compiler.target>
+  </properties>
+
+  <dependencyManagement>
+    <dependencies>${managed}
+    </dependencies>
+  </dependencyManagement>
+""")
+}
+
+String testlibPom(int i) {
+    final StringBuilder deps = new StringBuilder()
+    if (i + 1 < TESTLIB_COUNT) {
+        deps.append(dependency(testlib(i + 1), null, null))
+    }
+    if (i + 2 < TESTLIB_COUNT) {
+        deps.append(dependency(testlib(i + 2), null, 'runtime'))
+    }
+    return project("""${parent('scale-mock-parent', RELEASE)}
+  <artifactId>${testlib(i)}</artifactId>
+
+  <dependencies>${deps}
+  </dependencies>
+""")
+}
+
+String familyParentPom(int f, String version) {
+    return project("""${parent('scale-mock-parent', version)}
+  <artifactId>${family(f)}</artifactId>
+  <packaging>pom</packaging>
+
+  <dependencies>${dependency(testlib(f % TESTLIB_COUNT), null, 'test')}
+  </dependencies>
+""")
+}
+
+String mockPom(String familyId, String artifactId, String version, String predecessor, int testlibIndex) {
+    final String deps = (predecessor == null ? '' : dependency(predecessor, '${project.version}', null)) +
+            dependency(testlib(testlibIndex), null, 'test')
+    return project("""${parent(familyId, version)}
+  <artifactId>${artifactId}</artifactId>
+  <name>Scale mock :: ${artifactId}</name>
+
+  <dependencies>${deps}
+  </dependencies>
+
+  <build>
+    <plugins>
+      <plugin>
+        <groupId>org.apache.maven.plugins</groupId>
+        <artifactId>maven-jar-plugin</artifactId>
+        <version>3.2.0</version>
+        <executions>
+          <execution>
+            <goals>
+              <goal>test-jar</goal>
+            </goals>
+          </execution>
+        </executions>
+      </plugin>
+    </plugins>
+  </build>
+""")
+}
+
+void install(Path repo, String artifactId, String version, String pom, boolean testJar) {
+    final Path artifactDir = repo.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId)
+    final Path versionDir = artifactDir.resolve(version)
+    final String baseName = artifactId + '-' + version
+    write(versionDir.resolve(baseName + '.pom'), pom)
+    final List<String[]> files = [['', 'pom'] as String[]]
+    if (!pom.contains('<packaging>pom</packaging>')) {
+        final String pkg = packageName(artifactId)
+        final String cls = className(artifactId)
+        writeJar(versionDir.resolve(baseName + '.jar'), [
+            (pkg + '/' + cls + '.class'): classFile(pkg + '/' + cls, 'java/lang/Object', 0x0021)
+        ])
+        files.add(['', 'jar'] as String[])
+        if (testJar) {
+            /* An abstract base class, a concrete test extending it and a nested class */
+            final String abstractTest = pkg + '/Abstract' + cls + 'Test'
+            final String test = pkg + '/' + cls + 'Test'
+            final String nested = test + '$Nested'
+            writeJar(versionDir.resolve(baseName + '-tests.jar'), [
+                (abstractTest + '.class'): classFile(abstractTest, 'java/lang/Object', 0x0421),
+                (test + '.class'): classFile(test, abstractTest, 0x0021),
+                (nested + '.class'): classFile(nested, 'java/lang/Object', 0x0021),
+                (pkg + '/test-data.properties'): ('artifactId=' + artifactId + '\n').getBytes('UTF-8')
+            ])
+            files.add(['tests', 'jar'] as String[])
+        }
+    }
+    if (version.endsWith('-SNAPSHOT')) {
+        final StringBuilder snapshotVersions = new StringBuilder()
+        for (String[] file : files) {
+            snapshotVersions.append('\n      <snapshotVersion>')
+            if (!file[0].isEmpty()) {
+                snapshotVersions.append('\n        <classifier>').append(file[0]).append('</classifier>')
+            }
+            snapshotVersions.append('\n        <extension>').append(file[1]).append('</extension>')
+            snapshotVersions.append('\n        <value>').append(version).append('</value>')
+            snapshotVersions.append('\n        <updated>').append(LAST_UPDATED).append('</updated>')
+            snapshotVersions.append('\n      </snapshotVersion>')
+        }
+        write(versionDir.resolve('maven-metadata-local.xml'), """<?xml version="1.0" encoding="UTF-8"?>
+<metadata modelVersion="1.1.0">
+  <groupId>${GROUP_ID}</groupId>
+  <artifactId>${artifactId}</artifactId>
+  <version>${version}</version>
+  <versioning>
+    <snapshot>
+      <localCopy>true</localCopy>
+    </snapshot>
+    <lastUpdated>${LAST_UPDATED}</lastUpdated>
+    <snapshotVersions>${snapshotVersions}
+    </snapshotVersions>
+  </versioning>
+</metadata>
+""")
+    }
+    final Path artifactMetadata = artifactDir.resolve('maven-metadata-local.xml')
+    final Set<String> versions = new TreeSet<>([version])
+    if (Files.exists(artifactMetadata)) {
+        final String oldMetadata = new String(Files.readAllBytes(artifactMetadata), StandardCharsets.UTF_8)
+        (oldMetadata =~ /<version>([^<]+)<\/version>/).each { versions.add(it[1]) }
+    }
+    final StringBuilder versionElements = new StringBuilder()
+    for (String v : versions) {
+        versionElements.append('\n      <version>').append(v).append('</version>')
+    }
+    write(artifactMetadata, """<?xml version="1.0" encoding="UTF-8"?>
+<metadata>
+  <groupId>${GROUP_ID}</groupId>
+  <artifactId>${artifactId}</artifactId>
+  <versioning>
+    <versions>${versionElements}
+    </versions>
+    <lastUpdated>${LAST_UPDATED}</lastUpdated>
+  </versioning>
+</metadata>
+""")
+}
+
+void write(Path path, String content) {
+    Files.createDirectories(path.getParent())
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8))
+}
+
+void writeJar(Path path, Map<String, byte[]> entries) {
+    final Manifest manifest = new Manifest()
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, '1.0')
+    final JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path), manifest)
+    try {
+        final Set<String> dirs = new LinkedHashSet<>()
+        entries.each { name, bytes ->
+            for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+                final String dir = name.substring(0, i + 1)
+                if (dirs.add(dir)) {
+                    jar.putNextEntry(new ZipEntry(dir))
+                    jar.closeEntry()
+                }
+            }
+            jar.putNextEntry(new ZipEntry(name))
+            jar.write(bytes)
+            jar.closeEntry()
+        }
+    } finally {
+        jar.close()
+    }
+}
+
+/**
+ * @return a minimal valid class file with no members, enough for the class file parsers of the plugin
+ */
+byte[] classFile(String internalName, String superName, int accessFlags) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    final DataOutputStream out = new DataOutputStream(bytes)
+    out.writeInt((int) 0xCAFEBABEL)
+    out.writeShort(0) // minor version
+    out.writeShort(52) // major version of Java 8
+    out.writeShort(5) // constant pool count
+    out.writeByte(1) // #1 CONSTANT_Utf8
+    out.writeUTF(internalName)
+    out.writeByte(7) // #2 CONSTANT_Class
+    out.writeShort(1)
+    out.writeByte(1) // #3 CONSTANT_Utf8
+    out.writeUTF(superName)
+    out.writeByte(7) // #4 CONSTANT_Class
+    out.writeShort(3)
+    out.writeShort(accessFlags)
+    out.writeShort(2) // this_class
+    out.writeShort(4) // super_class
+    out.writeShort(0) // interfaces
+    out.writeShort(0) // fields
+    out.writeShort(0) // methods
+    out.writeShort(0) // attributes
+    out.flush()
+    return bytes.toByteArray()
+}
+
+void deleteRecursively(Path path) {
+    if (Files.exists(path)) {
+        path.toFile().deleteDir()
+    }
+}
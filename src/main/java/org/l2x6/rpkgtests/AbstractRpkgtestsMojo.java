@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * The parameters and methods shared by all mojos of this plugin: currently the optional {@link PerfReport}.
+ *
+ * @since 1.0.1
+ */
+public abstract class AbstractRpkgtestsMojo extends AbstractMojo {
+
+    /**
+     * If {@code true} the time spent in the individual phases of this mojo (such as scanning the POMs, resolving the
+     * catalogs, downloading, transforming and installing of the artifacts, rendering of the templates or cleaning),
+     * both per artifact and in aggregate, plus the number of bytes read and written are stored in a JSON report
+     * {@code <goal>.json} in {@link #perfReportDir}. See {@link PerfReport} for the format. If {@code false} no
+     * measurements are taken at all.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.perfReport", defaultValue = "false")
+    protected boolean perfReport;
+
+    /**
+     * The directory where to store the JSON report if {@link #perfReport} is {@code true}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.perfReportDir", defaultValue = "${project.build.directory}/rpkgtests-perf")
+    protected Path perfReportDir;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution mojoExecution;
+
+    private PerfReport report;
+
+    public void setPerfReportDir(File perfReportDir) {
+        this.perfReportDir = perfReportDir.toPath();
+    }
+
+    /**
+     * @return the number of threads this mojo uses, as reported in the {@link PerfReport}
+     */
+    protected abstract int getThreads();
+
+    /**
+     * @return the {@link PerfReport} of this mojo execution or {@link PerfReport#DISABLED} if {@link #perfReport} is
+     *         {@code false}
+     */
+    protected PerfReport getPerfReport() {
+        if (report == null) {
+            report = perfReport ? new PerfReport(getGoal(), getThreads()) : PerfReport.DISABLED;
+        }
+        return report;
+    }
+
+    String getGoal() {
+        return mojoExecution != null ? mojoExecution.getGoal() : getClass().getSimpleName();
+    }
+
+    /**
+     * Writes the {@link PerfReport} of this mojo execution to {@link #perfReportDir} if {@link #perfReport} is
+     * {@code true}.
+     */
+    protected void writePerfReport() {
+        if (perfReport) {
+            final Path path = perfReportDir.resolve(getGoal() + ".json");
+            getPerfReport().write(path);
+            getLog().info("Wrote the performance report to " + path);
+        }
+    }
+}
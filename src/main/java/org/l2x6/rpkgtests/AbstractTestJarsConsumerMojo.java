@@ -23,23 +23,34 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.SessionData;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
 
-public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
+public abstract class AbstractTestJarsConsumerMojo extends AbstractRpkgtestsMojo {
+    /** The key under which the catalog cache is stored in {@link SessionData} */
+    private static final String SESSION_CACHE_KEY = AbstractTestJarsConsumerMojo.class.getName() + ".catalogs";
+
     /**
      * A collection of {@link Gav}s representing test-jars which should be processed by this mojo.
      * <p>
@@ -95,17 +106,28 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
     @Parameter(property = "rpkgtests.encoding", defaultValue = "${project.build.sourceEncoding}")
     private String encoding;
 
+    /**
+     * The maximum number of threads to use for the processing of the test jars and of the {@link #testJarXmls}. The
+     * default {@code 1} means that the items are processed sequentially one after another. Higher values may speed up
+     * the processing of large sets of test jars, especially if the resolution of them involves a lot of network I/O.
+     * The log output and the reporting of errors is the same regardless of the number of threads.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.threads", defaultValue = "1")
+    protected int threads;
+
     @Parameter(defaultValue = "${project.basedir}", readonly = true)
     protected Path baseDir;
 
     @Component
-    private RepositorySystem repoSystem;
+    protected RepositorySystem repoSystem;
 
     @Parameter(defaultValue = "${repositorySystemSession}", readonly = true, required = true)
-    private RepositorySystemSession repoSession;
+    protected RepositorySystemSession repoSession;
 
     @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true, required = true)
-    private List<RemoteRepository> repositories;
+    protected List<RemoteRepository> repositories;
 
     private Charset charset;
 
@@ -116,11 +138,21 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
         return charset;
     }
 
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+        this.charset = null;
+    }
+
     public void setBaseDir(File baseDir) {
         this.baseDir = baseDir.toPath();
     }
 
-    protected Set<Gav> getTestJarsOrFail() throws MojoFailureException {
+    @Override
+    protected int getThreads() {
+        return threads;
+    }
+
+    protected Set<Gav> getTestJarsOrFail() throws MojoExecutionException, MojoFailureException {
         Set<Gav> result = getTestJars();
         if (result.isEmpty()) {
             throw new MojoFailureException(
@@ -129,33 +161,132 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
         return result;
     }
 
-    protected Set<Gav> getTestJars() {
+    protected Set<Gav> getTestJars() throws MojoExecutionException, MojoFailureException {
 
         final Set<Gav> result = new TreeSet<Gav>();
         if (testJars != null && !testJars.isEmpty()) {
             result.addAll(testJars);
         }
-        for (Gav testJarXml : testJarXmls) {
+        if (testJarXmls == null || testJarXmls.isEmpty()) {
+            return result;
+        }
+        result.addAll(getCatalogTestJars());
+        return result;
+    }
 
-            final Artifact aetherArtifact = testJarXml.asAetherArtifact("xml", null);
+    /**
+     * Returns the {@link Gav}s listed in the {@link #testJarXmls} catalogs. The result is memoized for the lifetime of
+     * the current {@link RepositorySystemSession} so that the catalogs are resolved and parsed only once even if
+     * several mojo executions (possibly running concurrently in a {@code -T} build) ask for the same catalogs.
+     *
+     * @return an unmodifiable sorted {@link Set} of {@link Gav}s
+     * @throws MojoExecutionException if resolving or parsing of the catalogs fails
+     * @throws MojoFailureException if resolving or parsing of the catalogs fails
+     */
+    Set<Gav> getCatalogTestJars() throws MojoExecutionException, MojoFailureException {
+        final long start = getPerfReport().start();
+        try {
+            return getCatalogTestJarsCached();
+        } finally {
+            getPerfReport().stop("catalog-resolution", start);
+        }
+    }
 
-            final ArtifactRequest req = new ArtifactRequest().setRepositories(this.repositories).setArtifact(aetherArtifact);
+    Set<Gav> getCatalogTestJarsCached() throws MojoExecutionException, MojoFailureException {
+        final String key = getCatalogCacheKey();
+        final ConcurrentMap<String, CompletableFuture<Set<Gav>>> cache = getSessionCache(SESSION_CACHE_KEY);
+        final CompletableFuture<Set<Gav>> future = new CompletableFuture<>();
+        final CompletableFuture<Set<Gav>> existing = cache.putIfAbsent(key, future);
+        if (existing != null) {
             try {
-                final ArtifactResult resolutionResult = repoSystem.resolveArtifact(this.repoSession, req);
-
-                final Path testJarsPath = resolutionResult.getArtifact().getFile().toPath();
-                try (Reader reader = Files.newBufferedReader(testJarsPath, getCharset())) {
-                    final Gas tj = Gas.read(reader, testJarsPath.toString());
-                    tj.getGavs().stream()
-                            .map(gav -> gav.withVersion(testJarXml.getVersionPlaceholder()))
-                            .forEach(result::add);
-                } catch (IOException e) {
-                    throw new RuntimeException("Could not read from " + testJarsPath);
+                return existing.join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof MojoExecutionException) {
+                    throw (MojoExecutionException) cause;
+                } else if (cause instanceof MojoFailureException) {
+                    throw (MojoFailureException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
                 }
-            } catch (ArtifactResolutionException e) {
-                throw new RuntimeException("Could not resolve " + aetherArtifact, e);
+                throw e;
             }
         }
+        try {
+            final Set<Gav> result = Collections.unmodifiableSet(resolveCatalogTestJars());
+            future.complete(result);
+            return result;
+        } catch (MojoExecutionException | MojoFailureException | RuntimeException | Error e) {
+            /* Do not cache failures; concurrent waiters get the same exception though */
+            cache.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the key under which the result of {@link #resolveCatalogTestJars()} is memoized; it covers everything the
+     *         result depends on: the catalog coordinates, their version placeholders, the encoding and the IDs of the
+     *         remote repositories the catalogs are resolved from
+     */
+    String getCatalogCacheKey() {
+        return testJarXmls.stream()
+                .map(gav -> gav + ":" + gav.getVersionPlaceholder())
+                .collect(Collectors.joining(",", getCharset().name() + ";", ";"))
+                + repositories.stream().map(RemoteRepository::getId).collect(Collectors.joining(","));
+    }
+
+    /**
+     * @param <V> the type of the cached values
+     * @param name the key under which the cache is stored in {@link SessionData}
+     * @return a {@link ConcurrentMap} living as long as the current {@link RepositorySystemSession}, created on first
+     *         access
+     */
+    @SuppressWarnings("unchecked")
+    <V> ConcurrentMap<String, V> getSessionCache(String name) {
+        final SessionData data = repoSession.getData();
+        while (true) {
+            final Object cache = data.get(name);
+            if (cache != null) {
+                return (ConcurrentMap<String, V>) cache;
+            }
+            data.set(name, null, new ConcurrentHashMap<String, V>());
+        }
+    }
+
+    Set<Gav> resolveCatalogTestJars() throws MojoExecutionException, MojoFailureException {
+        final Set<Gav> result = new TreeSet<Gav>();
+        /* Resolve all catalogs in a single batch so that the resolver can download them concurrently */
+        final List<ArtifactRequest> requests = testJarXmls.stream()
+                .map(testJarXml -> new ArtifactRequest().setRepositories(this.repositories)
+                        .setArtifact(testJarXml.asAetherArtifact("xml", null)))
+                .collect(Collectors.toList());
+        final List<ArtifactResult> resolutionResults;
+        try {
+            resolutionResults = repoSystem.resolveArtifacts(this.repoSession, requests);
+        } catch (ArtifactResolutionException e) {
+            final String failed = e.getResults().stream()
+                    .filter(r -> !r.isResolved())
+                    .map(r -> r.getRequest().getArtifact().toString())
+                    .collect(Collectors.joining(", "));
+            throw new RuntimeException("Could not resolve " + failed, e);
+        }
+
+        final List<Integer> indexes = IntStream.range(0, testJarXmls.size()).boxed().collect(Collectors.toList());
+        final List<List<Gav>> catalogs = RpkgUtils.parallelMap(indexes, threads, i -> {
+            final Gav testJarXml = testJarXmls.get(i);
+            final Path testJarsPath = resolutionResults.get(i).getArtifact().getFile().toPath();
+            getPerfReport().read("catalog-resolution", () -> testJarsPath.toFile().length());
+            final List<Gav> gavs = new ArrayList<>();
+            try (Reader reader = Files.newBufferedReader(testJarsPath, getCharset())) {
+                Gas.read(reader, testJarsPath.toString(),
+                        gav -> gavs.add(gav.withVersion(testJarXml.getVersionPlaceholder())));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read from " + testJarsPath, e);
+            }
+            return gavs;
+        });
+        catalogs.forEach(result::addAll);
         return result;
     }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The bits of a class file header needed by {@link TestClassIndex} and {@link JarFilter}: the access flags and the
+ * names of the classes referenced from the constant pool. Only the header up to the {@code access_flags} is parsed.
+ *
+ * @since 1.0.1
+ */
+public class ClassFileInfo {
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+    private static final int TAG_UTF8 = 1;
+    private static final int TAG_CLASS = 7;
+
+    /**
+     * @param classFile the class file to parse
+     * @return a new {@link ClassFileInfo} or {@code null} if the given bytes are not a valid class file
+     */
+    public static ClassFileInfo parse(ByteBuffer classFile) {
+        final ByteBuffer b = classFile.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (b.getInt() != CLASS_MAGIC) {
+                return null;
+            }
+            skip(b, 4); // minor_version, major_version
+            final int constantPoolCount = Short.toUnsignedInt(b.getShort());
+            final String[] utf8s = new String[constantPoolCount];
+            /* name_index of each CONSTANT_Class entry; 0 for other entries */
+            final int[] classNameIndexes = new int[constantPoolCount];
+            for (int i = 1; i < constantPoolCount; i++) {
+                final int tag = Byte.toUnsignedInt(b.get());
+                switch (tag) {
+                    case TAG_UTF8:
+                        final byte[] bytes = new byte[Short.toUnsignedInt(b.getShort())];
+                        b.get(bytes);
+                        /* Modified UTF-8 differs from UTF-8 only in characters that never occur in class names */
+                        utf8s[i] = new String(bytes, StandardCharsets.UTF_8);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        skip(b, 4);
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        skip(b, 8);
+                        i++; // takes two slots
+                        break;
+                    case TAG_CLASS:
+                        classNameIndexes[i] = Short.toUnsignedInt(b.getShort());
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        skip(b, 2);
+                        break;
+                    case 15: // MethodHandle
+                        skip(b, 3);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            final int accessFlags = Short.toUnsignedInt(b.getShort());
+            final int thisClassIndex = Short.toUnsignedInt(b.getShort());
+            return new ClassFileInfo(accessFlags, utf8s, classNameIndexes, thisClassIndex);
+        } catch (RuntimeException e) {
+            /* BufferUnderflowException or IllegalArgumentException for truncated class files */
+            return null;
+        }
+    }
+
+    static void skip(ByteBuffer buffer, int length) {
+        RpkgUtils.position(buffer, buffer.position() + length);
+    }
+
+    private final int accessFlags;
+    private final String[] utf8s;
+    private final int[] classNameIndexes;
+    private final int thisClassIndex;
+
+    ClassFileInfo(int accessFlags, String[] utf8s, int[] classNameIndexes, int thisClassIndex) {
+        this.accessFlags = accessFlags;
+        this.utf8s = utf8s;
+        this.classNameIndexes = classNameIndexes;
+        this.thisClassIndex = thisClassIndex;
+    }
+
+    /**
+     * @return the {@code access_flags} of the class
+     */
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * @return the internal name (such as {@code org/foo/Bar}) of this class or {@code null} if it cannot be determined
+     */
+    public String getClassName() {
+        return utf8At(classNameAt(thisClassIndex));
+    }
+
+    /**
+     * Returns the internal names (such as {@code org/foo/Bar}) of the classes referenced by this class. Both the
+     * {@code CONSTANT_Class} entries and the class names occurring in descriptors and signatures are considered. The
+     * result may thus contain some names that are not classes at all, but it contains all referenced classes.
+     *
+     * @return a sorted {@link Set} of class names, not including the class itself
+     */
+    public Set<String> getReferencedClasses() {
+        final Set<String> result = new TreeSet<>();
+        for (int nameIndex : classNameIndexes) {
+            final String name = utf8At(nameIndex);
+            if (name != null) {
+                if (name.startsWith("[")) {
+                    /* Array classes such as [Lorg/foo/Bar; */
+                    addDescriptorClasses(name, result);
+                } else {
+                    result.add(name);
+                }
+            }
+        }
+        for (String utf8 : utf8s) {
+            if (utf8 != null && utf8.indexOf(';') > 0) {
+                addDescriptorClasses(utf8, result);
+            }
+        }
+        final String className = getClassName();
+        if (className != null) {
+            result.remove(className);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    int classNameAt(int index) {
+        return index > 0 && index < classNameIndexes.length ? classNameIndexes[index] : 0;
+    }
+
+    String utf8At(int index) {
+        return index > 0 && index < utf8s.length ? utf8s[index] : null;
+    }
+
+    /**
+     * Adds the class names occurring in the given descriptor or signature in the {@code Lorg/foo/Bar;} or
+     * {@code Lorg/foo/Bar<...>;} form to the given {@link Set}.
+     *
+     * @param descriptor the descriptor or signature to scan
+     * @param result the {@link Set} to add the class names to
+     */
+    static void addDescriptorClasses(String descriptor, Set<String> result) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = start + 1;
+            while (end < descriptor.length() && isClassNameChar(descriptor.charAt(end))) {
+                end++;
+            }
+            if (end > start + 1 && end < descriptor.length()
+                    && (descriptor.charAt(end) == ';' || descriptor.charAt(end) == '<')) {
+                result.add(descriptor.substring(start + 1, end));
+            }
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    static boolean isClassNameChar(char ch) {
+        return ch == '/' || ch == '$' || Character.isJavaIdentifierPart(ch);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * The resolved test classpath of a generated run-tests module. The manifest is stored in a simple text format: a
+ * {@code # key <key>} line identifying the inputs the classpath was resolved from, followed by one
+ * {@code path size} pair per line, sorted by path. The paths are relative to the local Maven repository and the sizes
+ * are in bytes:
+ *
+ * <pre>
+ * # key 5d41402abc4b2a76b9719d911017c592...
+ * junit/junit/4.12/junit-4.12.jar 314932
+ * org/myorg/my-artifact/1.2.3/my-artifact-1.2.3.jar 20413
+ * </pre>
+ *
+ * @since 1.0.1
+ */
+public class ClasspathManifest {
+    private static final String KEY_PREFIX = "# key ";
+
+    /**
+     * @param path the file to read
+     * @return a new {@link ClasspathManifest} or {@code null} if the given file does not exist
+     */
+    public static ClasspathManifest read(Path path) {
+        final Map<String, String> entries = new TreeMap<>();
+        String key = null;
+        try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = r.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.startsWith(KEY_PREFIX)) {
+                    key = line.substring(KEY_PREFIX.length()).trim();
+                    continue;
+                } else if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final int space = line.lastIndexOf(' ');
+                if (space <= 0) {
+                    throw new IllegalStateException(
+                            "Expected 'path size' at " + path + ":" + lineNumber + "; found '" + line + "'");
+                }
+                entries.put(line.substring(0, space).trim(), line.substring(space + 1));
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+        return new ClasspathManifest(key, entries);
+    }
+
+    private final String key;
+    private final Map<String, String> entries;
+
+    /**
+     * @param key the key identifying the inputs the classpath was resolved from
+     * @param entries the sizes of the classpath elements by their paths relative to the local Maven repository
+     */
+    public ClasspathManifest(String key, Map<String, String> entries) {
+        this.key = key;
+        this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+    }
+
+    /**
+     * @return the key identifying the inputs the classpath was resolved from or {@code null} if the manifest file has
+     *         no key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return an unmodifiable sorted {@link Map} of sizes by classpath element paths
+     */
+    public Map<String, String> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param localRepo the local Maven repository the relative paths of the entries are resolved against
+     * @return {@code true} if all classpath elements exist and have the recorded size; {@code false} otherwise
+     */
+    public boolean isComplete(Path localRepo) {
+        for (Entry<String, String> entry : entries.entrySet()) {
+            final Path file = localRepo.resolve(entry.getKey());
+            try {
+                if (!String.valueOf(Files.size(file)).equals(entry.getValue())) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes this {@link ClasspathManifest} to the given file unless the file has the same content already.
+     *
+     * @param path the file to write
+     * @return {@code true} if the file was written; {@code false} otherwise
+     */
+    public boolean write(Path path) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(KEY_PREFIX).append(key).append('\n');
+        for (Entry<String, String> entry : entries.entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return RpkgUtils.writeIfChanged(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.l2x6.rpkgtests.GenerateTestModulesMojo.Replacers;
+
+/**
+ * Collects the wall time of the tests run in the modules generated by {@code create-test-modules} from their Surefire
+ * XML reports and stores them in a {@link TestTimings} file, keyed by the {@code groupId:artifactId} of the respective
+ * test jars. The file is meant to be kept under version control and passed to {@code create-test-modules} via
+ * {@code testTimingsPath}.
+ * <p>
+ * The reports are streamed and only the {@code time} attributes are read, so the memory requirements do not depend
+ * on the size of the reports. The timings of test jars that have no reports (e.g. because they were run on another
+ * CI node) are kept from the existing {@link #testTimingsPath}.
+ *
+ * @since 1.0.1
+ */
+@Mojo(name = "collect-test-timings", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.VERIFY)
+public class CollectTestTimingsMojo extends AbstractTestJarsConsumerMojo {
+    private static final Pattern PLAIN_TIME_PATTERN = Pattern.compile("[0-9]+(?:\\.[0-9]+)?");
+    private static final Pattern GROUPED_TIME_PATTERN = Pattern.compile("[0-9]{1,3}(?:,[0-9]{3})+\\.[0-9]+");
+
+    /**
+     * The directory under which the test modules were generated; it should be the same as
+     * {@code testModulesParentDir} of {@code create-test-modules}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testModulesParentDir", defaultValue = "${project.basedir}")
+    private Path testModulesParentDir;
+
+    /**
+     * The replacers used to produce the directory names of the test modules; it should be the same as
+     * {@code testModuleDirReplacers} of {@code create-test-modules}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testModuleDirReplacers")
+    private String testModuleDirReplacers;
+
+    /**
+     * The path to the directory containing the Surefire XML reports relative to the directory of a test module.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.reportsDirectory", defaultValue = "target/surefire-reports")
+    private String reportsDirectory;
+
+    /**
+     * The file where to store the collected timings.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testTimingsPath", defaultValue = "${project.basedir}/rpkgtests-timings.txt")
+    private Path testTimingsPath;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final Set<Gav> gavs = getTestJarsOrFail();
+        final Replacers dirReplacers = Replacers.parse(testModuleDirReplacers);
+
+        final List<Gav> gavList = new ArrayList<>(gavs);
+        final List<Map<String, Double>> collected = RpkgUtils.parallelMap(gavList, threads, gav -> {
+            final Path reportsDir = testModulesParentDir.resolve(dirReplacers.apply(gav.getArtifactId()))
+                    .resolve(reportsDirectory);
+            final long start = getPerfReport().start();
+            final Map<String, Double> result = collect(gav, reportsDir, getLog());
+            getPerfReport().stop("collect", gav, start);
+            return result;
+        });
+
+        final Map<String, Double> costs = new HashMap<>();
+        if (Files.isRegularFile(testTimingsPath)) {
+            costs.putAll(TestTimings.read(testTimingsPath).getCosts());
+        }
+        int updated = 0;
+        for (int i = 0; i < gavList.size(); i++) {
+            final Map<String, Double> gavCosts = collected.get(i);
+            if (!gavCosts.isEmpty()) {
+                /* Replace all the old entries of this test jar, including the ones of removed test classes */
+                final String key = TestTimings.key(gavList.get(i));
+                costs.keySet().removeIf(k -> k.equals(key) || k.startsWith(key + "/"));
+                costs.putAll(gavCosts);
+                updated++;
+            }
+        }
+        new TestTimings(costs).write(testTimingsPath);
+        getLog().info("Collected timings of " + updated + " out of " + gavList.size() + " test jars to "
+                + testTimingsPath);
+        writePerfReport();
+    }
+
+    /**
+     * @param gav the test jar whose reports should be read
+     * @param reportsDir the directory containing the {@code TEST-*.xml} reports of the given test jar
+     * @param log for reporting the reports whose times cannot be parsed
+     * @return a {@link Map} of the total time of the given test jar and of the times of its individual test classes;
+     *         an empty {@link Map} if there are no reports
+     */
+    static Map<String, Double> collect(Gav gav, Path reportsDir, Log log) {
+        final Map<String, Double> result = new LinkedHashMap<>();
+        if (!Files.isDirectory(reportsDir)) {
+            return result;
+        }
+        double total = 0;
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsDir, "TEST-*.xml")) {
+            for (Path report : reports) {
+                final Map.Entry<String, Double> suiteTime = readSuiteTime(report, log);
+                if (suiteTime != null) {
+                    result.merge(TestTimings.key(gav, suiteTime.getKey()), suiteTime.getValue(), Double::sum);
+                    total += suiteTime.getValue();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + reportsDir, e);
+        }
+        if (!result.isEmpty()) {
+            result.put(TestTimings.key(gav), total);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the name and the time of the test suite stored in the given Surefire report. If the {@code testsuite}
+     * element has a {@code time} attribute, nothing else is read; otherwise the {@code time} attributes of the
+     * {@code testcase} elements are summed up while streaming through the file.
+     *
+     * @param report the report to read
+     * @param log for reporting a time that cannot be parsed
+     * @return an entry of test suite name and time in seconds or {@code null} if the file is not a Surefire report or
+     *         if any of the times in it cannot be parsed
+     */
+    static Map.Entry<String, Double> readSuiteTime(Path report, Log log) {
+        try (InputStream in = Files.newInputStream(report)) {
+            final XMLStreamReader r = RpkgUtils.xmlInputFactory(false).createXMLStreamReader(in);
+            try {
+                if (r.nextTag() != XMLStreamConstants.START_ELEMENT || !"testsuite".equals(r.getLocalName())) {
+                    return null;
+                }
+                final String name = r.getAttributeValue(null, "name");
+                String rawTime = r.getAttributeValue(null, "time");
+                try {
+                    if (rawTime != null) {
+                        return new AbstractMap.SimpleImmutableEntry<>(name, parseTime(rawTime));
+                    }
+                    double time = 0;
+                    while (r.hasNext()) {
+                        if (r.next() == XMLStreamConstants.START_ELEMENT && "testcase".equals(r.getLocalName())) {
+                            rawTime = r.getAttributeValue(null, "time");
+                            if (rawTime != null) {
+                                time += parseTime(rawTime);
+                            }
+                        }
+                    }
+                    return new AbstractMap.SimpleImmutableEntry<>(name, time);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring " + report + ": " + e.getMessage());
+                    return null;
+                }
+            } finally {
+                r.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new RuntimeException("Could not read " + report, e);
+        }
+    }
+
+    /**
+     * Parses a time as formatted by Surefire using the English locale, such as {@code 1234}, {@code 0.5} or
+     * {@code 1,234.5}. Times with a comma but without a decimal point, such as {@code 1,234}, are rejected because
+     * they might have been written with a comma as the decimal separator.
+     *
+     * @param time the time to parse
+     * @return the time in seconds
+     * @throws NumberFormatException if {@code time} cannot be parsed unambiguously
+     */
+    static double parseTime(String time) {
+        final String trimmed = time.trim();
+        if (PLAIN_TIME_PATTERN.matcher(trimmed).matches()) {
+            return Double.parseDouble(trimmed);
+        } else if (GROUPED_TIME_PATTERN.matcher(trimmed).matches()) {
+            return Double.parseDouble(trimmed.replace(",", ""));
+        }
+        throw new NumberFormatException("Could not parse the time '" + time + "'");
+    }
+
+    public void setTestModulesParentDir(File testModulesParentDir) {
+        this.testModulesParentDir = testModulesParentDir.toPath();
+    }
+
+    public void setTestTimingsPath(File testTimingsPath) {
+        this.testTimingsPath = testTimingsPath.toPath();
+    }
+}
@@ -26,12 +26,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -65,7 +60,7 @@ import org.apache.maven.shared.model.fileset.util.FileSetManager;
  * @since 0.4.0
  */
 @Mojo(name = "create-test-jars-file", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
-public class CreateTestJarsXmlMojo extends AbstractMojo {
+public class CreateTestJarsXmlMojo extends AbstractRpkgtestsMojo {
 
     /**
      * The path where the Mojo should store the resulting XML file.
@@ -113,14 +108,34 @@ public class CreateTestJarsXmlMojo extends AbstractMojo {
     @Parameter(defaultValue = "${session}")
     private MavenSession mavenSession;
 
+    /**
+     * The maximum number of threads to use for scanning the {@link #fileSets} and for reading the selected
+     * {@code pom.xml} files. With the default {@code 1} the {@link #fileSets} are scanned by {@link FileSetManager}.
+     * With higher values, the subdirectories are walked in parallel and the subtrees that cannot contain any included
+     * file (such as those matching {@code **}{@code /target/**} or the default excludes) are not entered at all. The
+     * resulting file is the same regardless of the number of threads.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.threads", defaultValue = "1")
+    private int threads;
+
+    @Override
+    protected int getThreads() {
+        return threads;
+    }
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
 
         final Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        final PerfReport report = getPerfReport();
 
         final List<Gav> gavs = new ArrayList<>();
-        handleFileSets(charset, gavs);
+        handleFileSets(charset, gavs, report);
+        long start = report.start();
         handleDynamic(gavs);
+        report.stop("dynamic", start);
 
         final Path outputPath = baseDir.toPath().resolve(testJarsPath.toPath());
         try {
@@ -128,32 +143,47 @@ public class CreateTestJarsXmlMojo extends AbstractMojo {
         } catch (IOException e) {
             throw new MojoExecutionException("Could not create " + outputPath.getParent(), e);
         }
+        start = report.start();
         try (BufferedWriter w = Files.newBufferedWriter(outputPath, charset)) {
-            final JAXBContext ctx = JAXBContext.newInstance(Gas.class, Gav.class);
-            final Marshaller m = ctx.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            m.marshal(new Gas(gavs), w);
-        } catch (JAXBException e) {
-            throw new MojoExecutionException("Could not serialize testJars " + gavs, e);
+            Gas.write(gavs, w, charset.name());
         } catch (IOException e) {
             throw new MojoExecutionException("Could not write to " + outputPath, e);
         }
+        report.stop("write", start);
+        report.written("write", () -> outputPath.toFile().length());
+        writePerfReport();
 
     }
 
-    private void handleFileSets(Charset charset, List<Gav> gavs) {
+    private void handleFileSets(Charset charset, List<Gav> gavs, PerfReport report)
+            throws MojoExecutionException, MojoFailureException {
+        final long start = report.start();
         final Set<Path> pomPaths = new TreeSet<>();
-        final FileSetManager fileSetManager = new FileSetManager();
-        for (FileSet fs : fileSets) {
-            final Path dir = Paths.get(fs.getDirectory());
-            final String[] includedFiles = fileSetManager.getIncludedFiles(fs);
-            for (String includedFile : includedFiles) {
-                pomPaths.add(dir.resolve(includedFile));
+        if (threads < 2) {
+            final FileSetManager fileSetManager = new FileSetManager();
+            for (FileSet fs : fileSets) {
+                final Path dir = Paths.get(fs.getDirectory());
+                final String[] includedFiles = fileSetManager.getIncludedFiles(fs);
+                for (String includedFile : includedFiles) {
+                    pomPaths.add(dir.resolve(includedFile));
+                }
+            }
+        } else {
+            for (FileSet fs : fileSets) {
+                final Path dir = Paths.get(fs.getDirectory());
+                for (String includedFile : new ParallelFileSetScanner(fs).scan(threads)) {
+                    pomPaths.add(dir.resolve(includedFile));
+                }
             }
         }
-        for (Path pomPath : pomPaths) {
-            gavs.add(Gav.read(pomPath, charset));
-        }
+        report.stop("scan", start);
+        gavs.addAll(RpkgUtils.parallelMap(new ArrayList<>(pomPaths), threads, pomPath -> {
+            final long readStart = report.start();
+            final Gav gav = Gav.read(pomPath, charset);
+            report.stop("read-poms", gav, readStart);
+            report.read("read-poms", () -> pomPath.toFile().length());
+            return gav;
+        }));
     }
 
     private Boolean isModuleActivated(MavenProject project) {
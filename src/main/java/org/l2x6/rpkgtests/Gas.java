@@ -16,32 +16,176 @@
  */
 package org.l2x6.rpkgtests;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-@XmlRootElement(name = "testArtifacts")
-@XmlAccessorType(XmlAccessType.FIELD)
+/**
+ * A list of {@link Gav}s stored in the {@code test-jars.xml} catalog format:
+ *
+ * <pre>
+ * {@code
+ * <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+ * <testArtifacts>
+ *     <testArtifact>
+ *         <groupId>org.myorg</groupId>
+ *         <artifactId>my-artifact</artifactId>
+ *         <version>1.2.3</version>
+ *     </testArtifact>
+ * </testArtifacts>
+ * }
+ * </pre>
+ *
+ * The catalog is read and written in a streaming fashion so that even catalogs with many entries can be processed
+ * without building any intermediate object graph.
+ */
 public class Gas {
+    private static final String ROOT_ELEMENT = "testArtifacts";
+    private static final String ENTRY_ELEMENT = "testArtifact";
+    private static final String INDENT = "    ";
 
     public static Gas read(Reader reader, String source) {
+        final List<Gav> gavs = new ArrayList<>();
+        read(reader, source, gavs::add);
+        return new Gas(gavs);
+    }
+
+    /**
+     * Reads the catalog from the given {@code reader} passing each {@link Gav} to the given {@code consumer} as soon as
+     * it is parsed.
+     *
+     * @param reader the {@link Reader} to read from
+     * @param source a description of the {@code reader} for error reporting purposes
+     * @param consumer the {@link Consumer} to notify about each {@link Gav}
+     * @since 1.0.1
+     */
+    public static void read(Reader reader, String source, Consumer<Gav> consumer) {
+        XMLStreamReader r = null;
         try {
-            final JAXBContext ctx = JAXBContext.newInstance(Gas.class, Gav.class);
-            final Unmarshaller um = ctx.createUnmarshaller();
-            return (Gas) um.unmarshal(reader);
-        } catch (JAXBException e) {
+            r = RpkgUtils.xmlInputFactory(true).createXMLStreamReader(reader);
+            r.nextTag();
+            if (!ROOT_ELEMENT.equals(r.getLocalName())) {
+                throw new RuntimeException("Could not deserialize testJars from XML " + source + ": expected <"
+                        + ROOT_ELEMENT + "> root element, found <" + r.getLocalName() + ">");
+            }
+            Gav gav = null;
+            int depth = 1;
+            while (depth > 0) {
+                switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        if (depth == 2 && ENTRY_ELEMENT.equals(r.getLocalName())) {
+                            gav = new Gav();
+                        } else if (depth == 3 && gav != null) {
+                            final String localName = r.getLocalName();
+                            final String text = r.getElementText().trim();
+                            depth--;
+                            switch (localName) {
+                                case "groupId":
+                                    gav.groupId = text;
+                                    break;
+                                case "artifactId":
+                                    gav.artifactId = text;
+                                    break;
+                                case "version":
+                                    gav.version = text;
+                                    break;
+                                default:
+                                    /* ignore unknown elements */
+                                    break;
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (depth == 2 && gav != null) {
+                            consumer.accept(gav);
+                            gav = null;
+                        }
+                        depth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
             throw new RuntimeException("Could not deserialize testJars from XML " + source, e);
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    /* ignore */
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the given {@link Gav}s to the given {@link Writer} in the catalog format.
+     *
+     * @param gavs the {@link Gav}s to write
+     * @param writer the {@link Writer} to write to
+     * @param encoding the name of the encoding to declare in the XML header
+     * @throws IOException if writing fails
+     * @since 1.0.1
+     */
+    public static void write(Iterable<Gav> gavs, Writer writer, String encoding) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"");
+        writer.write(encoding);
+        writer.write("\" standalone=\"yes\"?>\n");
+        boolean empty = true;
+        for (Gav gav : gavs) {
+            if (empty) {
+                writer.write("<" + ROOT_ELEMENT + ">\n");
+                empty = false;
+            }
+            writer.write(INDENT + "<" + ENTRY_ELEMENT + ">\n");
+            writeElement(writer, "groupId", gav.groupId);
+            writeElement(writer, "artifactId", gav.artifactId);
+            writeElement(writer, "version", gav.version);
+            writer.write(INDENT + "</" + ENTRY_ELEMENT + ">\n");
+        }
+        writer.write(empty ? "<" + ROOT_ELEMENT + "/>\n" : "</" + ROOT_ELEMENT + ">\n");
+    }
+
+    static void writeElement(Writer writer, String name, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write(INDENT);
+        writer.write(INDENT);
+        writer.write('<');
+        writer.write(name);
+        writer.write('>');
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                default:
+                    writer.write(ch);
+                    break;
+            }
         }
+        writer.write("</");
+        writer.write(name);
+        writer.write(">\n");
     }
 
-    @XmlElement(name = "testArtifact")
     private List<Gav> gavs;
 
     public Gas() {
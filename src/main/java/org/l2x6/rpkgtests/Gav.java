@@ -22,10 +22,9 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
@@ -37,15 +36,12 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 
-@XmlRootElement(name = "testArtifact")
-@XmlAccessorType(XmlAccessType.FIELD)
 public class Gav implements Comparable<Gav> {
 
     String groupId;
     String artifactId;
     String version;
 
-    @XmlTransient
     String versionPlaceholder;
 
     public Gav() {
@@ -173,7 +169,24 @@ public class Gav implements Comparable<Gav> {
         return true;
     }
 
+    /**
+     * Reads the coordinates of the given {@code pom.xml} file falling back to the coordinates of the parent if
+     * {@code groupId} or {@code version} are not set.
+     * <p>
+     * A streaming scanner is tried first that visits only the top level elements of the {@code pom.xml}, skipping
+     * over the contents of sections such as {@code <properties>} or {@code <dependencies>}, and that stops as soon as
+     * all own coordinates were found. The full {@link MavenXpp3Reader} is used only if the scanner fails.
+     *
+     * @param pomPath the {@code pom.xml} file to read
+     * @param charset the encoding of the {@code pom.xml} file
+     * @return a new {@link Gav}
+     */
     public static Gav read(Path pomPath, Charset charset) {
+        final Gav result = scan(pomPath, charset);
+        return result != null ? result : readModel(pomPath, charset);
+    }
+
+    static Gav readModel(Path pomPath, Charset charset) {
         try (Reader r = Files.newBufferedReader(pomPath, charset)) {
             final Model pom = new MavenXpp3Reader().read(r);
             final String groupId = pom.getGroupId() != null ? pom.getGroupId() : pom.getParent().getGroupId();
@@ -185,6 +198,109 @@ public class Gav implements Comparable<Gav> {
         }
     }
 
+    /**
+     * @param pomPath the {@code pom.xml} file to scan
+     * @param charset the encoding of the {@code pom.xml} file
+     * @return a new {@link Gav} or {@code null} if the coordinates could not be determined by the fast scanner
+     */
+    static Gav scan(Path pomPath, Charset charset) {
+        try (Reader r = Files.newBufferedReader(pomPath, charset)) {
+            return scan(r);
+        } catch (IOException | XMLStreamException e) {
+            /* Let the full parser report the problem */
+            return null;
+        }
+    }
+
+    static Gav scan(Reader reader) throws XMLStreamException {
+        final XMLStreamReader r = RpkgUtils.xmlInputFactory(true).createXMLStreamReader(reader);
+        try {
+            if (r.nextTag() != XMLStreamConstants.START_ELEMENT || !"project".equals(r.getLocalName())) {
+                return null;
+            }
+            String groupId = null;
+            String artifactId = null;
+            String version = null;
+            String parentGroupId = null;
+            String parentVersion = null;
+            /* Maven does not enforce the order of the elements, so all top level siblings need to be visited */
+            while (groupId == null || artifactId == null || version == null) {
+                final int event = r.next();
+                if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+                    /* The end of project */
+                    break;
+                } else if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (r.getLocalName()) {
+                    case "parent":
+                        while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                            switch (r.getLocalName()) {
+                                case "groupId":
+                                    parentGroupId = r.getElementText().trim();
+                                    break;
+                                case "version":
+                                    parentVersion = r.getElementText().trim();
+                                    break;
+                                default:
+                                    skipElement(r);
+                                    break;
+                            }
+                        }
+                        break;
+                    case "groupId":
+                        groupId = r.getElementText().trim();
+                        break;
+                    case "artifactId":
+                        artifactId = r.getElementText().trim();
+                        break;
+                    case "version":
+                        version = r.getElementText().trim();
+                        break;
+                    default:
+                        /* Skip the whole subtree, such as properties or dependencies */
+                        skipElement(r);
+                        break;
+                }
+            }
+            if (groupId == null) {
+                groupId = parentGroupId;
+            }
+            if (version == null) {
+                version = parentVersion;
+            }
+            return groupId != null && artifactId != null && version != null ? new Gav(groupId, artifactId, version)
+                    : null;
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * Moves the given {@link XMLStreamReader} positioned at a {@code START_ELEMENT} to the matching
+     * {@code END_ELEMENT}.
+     *
+     * @param r the reader to move
+     * @throws XMLStreamException on parse errors
+     */
+    static void skipElement(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (r.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document", r.getLocation());
+                default:
+                    break;
+            }
+        }
+    }
+
     @Override
     public int compareTo(Gav other) {
         final int groupCompare = groupId.compareTo(other.groupId);
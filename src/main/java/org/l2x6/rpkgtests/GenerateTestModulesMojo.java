@@ -18,20 +18,30 @@ package org.l2x6.rpkgtests;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -51,6 +61,19 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.resolution.ArtifactDescriptorException;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.resolution.DependencyResult;
+import org.eclipse.aether.util.artifact.JavaScopes;
 
 /**
  * Generates modules necessary to run repackaged tests.
@@ -61,12 +84,23 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
  */
 @Mojo(name = "create-test-modules", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
 public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
+    static final String DEFAULT_MANIFEST_FILE_NAME = ".rpkgtests-manifest";
+    static final String DEFAULT_CLASSPATH_MANIFEST_DIR_NAME = ".rpkgtests-classpath";
+    /**
+     * Must be increased whenever the way of resolving the classpath or the manifest format changes so that stale
+     * manifests are not used
+     */
+    private static final int CLASSPATH_MANIFEST_VERSION = 2;
+    private static final String LOCAL_REPOSITORY_PLACEHOLDER = "${settings.localRepository}/";
     static final String DEFAULT_TEMPLATES_URI_BASE = "classpath:/create-test-modules-templates";
     private static final String CLASSPATH_PREFIX = "classpath:";
     private static final String FILE_PREFIX = "file:";
     private static final Pattern INDENT_PATTERN = Pattern.compile("<project[^>]*>[\r\n]*([ \t]*)<");
     private static final String MANAGED_MODULES_START = "<!-- START: modules generated by rpkgtests-maven-plugin -->";
     private static final String MANAGED_MODULES_END = "<!-- END: modules generated by rpkgtests-maven-plugin -->";
+    /** FreeMarker {@link Configuration}s by templates URI base and encoding; see {@link #getConfiguration} */
+    private static final ConcurrentMap<String, Configuration> CONFIGURATIONS = new ConcurrentHashMap<>();
+    private static final Pattern MODULE_PATTERN = Pattern.compile("<module>([^<]*)</module>");
 
     /**
      * The directory under which the test modules will be generated
@@ -89,6 +123,8 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
      * <ul>
      * <li>{@code rpkg-module-pom.xml}</li>
      * <li>{@code run-tests-module-pom.xml}</li>
+     * <li>{@code run-tests-group-module-pom.xml} (used only if {@link #testJarsPerModule} is greater than
+     * {@code 1})</li>
      * </ul>
      * Note that you do not need to provide all of them. Files not available in your custom {@link #templatesUriBase}
      * will be looked up in the default URI base {@value #DEFAULT_TEMPLATES_URI_BASE}. The default templates are
@@ -169,9 +205,116 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
     @Parameter(property = "rpkgtests.cleanExcludes", defaultValue = ".**,pom.xml")
     private List<String> cleanExcludes;
 
+    /**
+     * If {@code true} the generated files are first rendered in memory and only the files whose content differs from
+     * the file on disk are written, so that the last modification time of the unchanged files is preserved. Instead
+     * of deleting everything selected by {@link #cleanIncludes} and {@link #cleanExcludes}, only the directories of
+     * the modules that were generated by a previous run but whose test jars are not present in {@link #testJars} and
+     * {@link #testJarXmls} anymore are deleted. If {@code true}, {@link #clean} has no effect.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * The path to a file where the list of the generated module directories and files is stored. If the file exists,
+     * {@link #clean} walks just the entries listed in it instead of the whole {@link #testModulesParentDir}; the files
+     * found there are deleted as far as they are selected by {@link #cleanIncludes} and {@link #cleanExcludes}, just
+     * like without the manifest. If not set, {@code .rpkgtests-manifest} in {@link #testModulesParentDir} is used. The
+     * default location is excluded from cleaning by the default {@link #cleanExcludes} and it survives
+     * {@code mvn clean}. The file is written only if {@link #clean} is {@code true} and {@link #incremental} is
+     * {@code false}; otherwise it is deleted, so that a later {@link #clean} does not rely on a stale list.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.manifestPath")
+    private Path manifestPath;
+
+    /**
+     * The number of shards to split the test jars into, so that the tests can be run on several CI nodes. If greater
+     * than {@code 1}, only the modules of the test jars belonging to the shard {@link #shardIndex} are generated and
+     * added to the parent {@code pom.xml}. The test jars are distributed so that the shards have similar total costs
+     * according to {@link #testTimingsPath}. If no timings are available, the shard of a test jar is determined by a
+     * stable hash of its {@code groupId:artifactId}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.shardCount", defaultValue = "1")
+    private int shardCount;
+
+    /**
+     * The zero based index of the shard to generate; see {@link #shardCount}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.shardIndex", defaultValue = "0")
+    private int shardIndex;
+
+    /**
+     * A file with the costs of running the tests of individual test jars, as written by the
+     * {@code collect-test-timings} mojo. Used for balancing the shards if {@link #shardCount} is greater than
+     * {@code 1}. The file does not need to exist; test jars without a known cost are assumed to cost the average of
+     * the known costs.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testTimingsPath")
+    private Path testTimingsPath;
+
+    /**
+     * If {@code true} the generated test modules will pass the test class index installed by the {@code rpkgtests}
+     * mojo with {@code testClassIndex} enabled to Surefire's {@code includesFile}, so that Surefire considers only the
+     * concrete test classes listed there. The index must be enabled for the {@code rpkgtests} mojo too.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testClassIndex", defaultValue = "false")
+    private boolean testClassIndex;
+
+    /**
+     * The maximum number of test jars to run in a single generated module. If greater than {@code 1}, the test jars
+     * having the same {@code groupId} and {@code version} are put together into groups of at most this size, and each
+     * group of more than one test jar gets a single module rendered from {@code run-tests-group-module-pom.xml} that
+     * lists all test jars of the group in Surefire's {@code dependenciesToScan}. This saves the per module overhead of
+     * Maven and of the Surefire fork startup when there are many small test jars. The directory and artifactId of a
+     * group module are derived from the first test jar of the group with {@code -group} appended. Note that
+     * {@link #testClassIndex} and the per test jar timings of {@code collect-test-timings} are not available for the
+     * group modules.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testJarsPerModule", defaultValue = "1")
+    private int testJarsPerModule;
+
+    /**
+     * If {@code true} the test classpath of each generated module is resolved once by this mojo and stored in a
+     * classpath manifest in {@link #classpathManifestDir}: a sorted list of the paths of the jars relative to the
+     * local Maven repository and of their sizes. The generated module then passes the jars to Surefire's
+     * {@code additionalClasspathElements} and its {@code -rpkgtests} dependency excludes all transitive dependencies,
+     * so that Maven does not need to collect the dependency graph of the module anew in every build. A manifest is
+     * resolved again only if the version of the test jar or the content of its POM (and thus the transformed
+     * {@code -rpkgtests} POM) changes, if any of the listed jars is missing or has a different size, or if the test jar
+     * is a SNAPSHOT. Not applicable to the group modules of {@link #testJarsPerModule}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.classpathManifest", defaultValue = "false")
+    private boolean classpathManifest;
+
+    /**
+     * The directory where to store the classpath manifests if {@link #classpathManifest} is {@code true}. If not set,
+     * {@code .rpkgtests-classpath} in {@link #testModulesParentDir} is used. The default location is excluded from
+     * cleaning by the default {@link #cleanExcludes} and it survives {@code mvn clean}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.classpathManifestDir")
+    private Path classpathManifestDir;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        final Set<Gav> gavs = getTestJarsOrFail();
+        final Set<Gav> gavs = getShard(getTestJarsOrFail());
 
         final Path testsParentPath = testModulesParentDir.resolve("pom.xml");
         final Gav parentPom = Gav.read(testsParentPath, getCharset());
@@ -180,7 +323,18 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
         final Gav rpkgPom = Gav.read(rpkgModulePomXmlPath, getCharset());
         final String effectiveRpkgtestsPluginVersion = RpkgUtils.unescapePlaceholder(rpkgtestsPluginVersion);
 
-        if (clean) {
+        final String testsParentSource;
+        try {
+            testsParentSource = new String(Files.readAllBytes(testsParentPath), getCharset());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + testsParentPath, e);
+        }
+
+        final Path effectiveManifestPath = manifestPath != null ? manifestPath
+                : testModulesParentDir.resolve(DEFAULT_MANIFEST_FILE_NAME);
+        final PerfReport report = getPerfReport();
+        if (clean && !incremental) {
+            final long start = report.start();
             final FileSystem fs = testsParentPath.getFileSystem();
             final List<PathMatcher> compiledIncludes = cleanIncludes == null ? Collections.emptyList()
                     : cleanIncludes.stream()
@@ -192,85 +346,443 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
                             .map(glob -> "glob:" + glob)
                             .map(fs::getPathMatcher)
                             .collect(Collectors.toList());
-            try {
-                Files.walkFileTree(testModulesParentDir, new SimpleFileVisitor<Path>() {
-
-                    @Override
-                    public FileVisitResult postVisitDirectory(
-                            Path dir, IOException exc) throws IOException {
-                        boolean hasChildren = false;
-                        try (Stream<Path> items = Files.list(dir)) {
-                            hasChildren = items.findFirst().isPresent();
-                        }
-                        if (!hasChildren) {
-                            Files.deleteIfExists(dir);
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFile(
-                            Path file, BasicFileAttributes attrs)
-                            throws IOException {
-                        final Path relative = testModulesParentDir.relativize(file);
-                        if (compiledIncludes.stream()
-                                .anyMatch(matcher -> matcher.matches(relative))
-                                && !compiledExcludes.stream()
-                                        .anyMatch(matcher -> matcher.matches(relative))) {
-                            Files.delete(file);
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-            } catch (IOException e) {
-                throw new RuntimeException("Could not walk " + testModulesParentDir, e);
+            if (Files.isRegularFile(effectiveManifestPath)) {
+                cleanByManifest(effectiveManifestPath, compiledIncludes, compiledExcludes);
+            } else {
+                cleanByWalking(compiledIncludes, compiledExcludes);
             }
+            report.stop("clean", start);
         }
-        final Configuration cfg = new Configuration(Configuration.VERSION_2_3_28);
-        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        cfg.setTemplateLoader(createTemplateLoader(baseDir, templatesUriBase));
-        cfg.setDefaultEncoding(getCharset().name());
-        cfg.setInterpolationSyntax(Configuration.SQUARE_BRACKET_INTERPOLATION_SYNTAX);
-        cfg.setTagSyntax(Configuration.SQUARE_BRACKET_TAG_SYNTAX);
-
-        final List<String> modules = new ArrayList<String>();
-        for (Gav gav : gavs) {
-            final String artifactId = artifactIdReplacers.apply(gav.getArtifactId());
-            final String dir = dirReplacers.apply(gav.getArtifactId());
-            final Path moduleDir = testModulesParentDir.resolve(dir);
-            modules.add(dir);
-            try {
-                Files.createDirectories(moduleDir);
-            } catch (IOException e) {
-                throw new MojoExecutionException("Could not create " + moduleDir, e);
-            }
-            final Path pomXmlPath = moduleDir.resolve("pom.xml");
+        final Configuration cfg = getConfiguration(baseDir, templatesUriBase, getCharset());
+        final Template runTestsModuleTemplate;
+        final Template runTestsGroupModuleTemplate;
+        final Template rpkgModuleTemplate;
+        try {
+            runTestsModuleTemplate = cfg.getTemplate("run-tests-module-pom.xml");
+            runTestsGroupModuleTemplate = testJarsPerModule > 1 ? cfg.getTemplate("run-tests-group-module-pom.xml")
+                    : null;
+            rpkgModuleTemplate = cfg.getTemplate("rpkg-module-pom.xml");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load templates from " + templatesUriBase, e);
+        }
+
+        final Path effectiveClasspathManifestDir = classpathManifestDir != null ? classpathManifestDir
+                : testModulesParentDir.resolve(DEFAULT_CLASSPATH_MANIFEST_DIR_NAME);
+        final List<List<Gav>> groups = groupTestJars(gavs, testJarsPerModule);
+        final List<String> modules = groups.stream()
+                .map(group -> moduleName(dirReplacers, group))
+                .collect(Collectors.toList());
+        final List<Boolean> moduleWritten = RpkgUtils.parallelMap(groups, threads, group -> {
+            final Gav gav = group.get(0);
+            final String artifactId = moduleName(artifactIdReplacers, group);
+            final String dir = moduleName(dirReplacers, group);
+            final Path pomXmlPath = testModulesParentDir.resolve(dir).resolve("pom.xml");
             final Gav runTestsModule = parentPom.withArtifactId(artifactId);
+            List<String> classpath = null;
+            if (classpathManifest && group.size() == 1) {
+                final long start = report.start();
+                classpath = getClasspath(gav, effectiveClasspathManifestDir.resolve(dir + ".txt"));
+                report.stop("classpath-resolution", gav, start);
+            }
 
             final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", runTestsModule, rpkgPom, gav, gavs,
-                    effectiveRpkgtestsPluginVersion);
+                    effectiveRpkgtestsPluginVersion, testClassIndex, group, classpath);
+            final long start = report.start();
             try {
-                evalTemplate(cfg, "run-tests-module-pom.xml", pomXmlPath, getCharset(), model);
+                final boolean result = evalTemplate(
+                        group.size() > 1 ? runTestsGroupModuleTemplate : runTestsModuleTemplate, pomXmlPath,
+                        getCharset(), model, incremental);
+                report.stop("render", gav, start);
+                if (result) {
+                    report.written("render", () -> pomXmlPath.toFile().length());
+                }
+                return result;
             } catch (IOException | TemplateException e) {
                 throw new RuntimeException(e);
             }
-        }
+        });
+        int written = (int) moduleWritten.stream().filter(Boolean::booleanValue).count();
 
         final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", null, rpkgPom, null, gavs,
-                effectiveRpkgtestsPluginVersion);
+                effectiveRpkgtestsPluginVersion, testClassIndex);
         try {
-            evalTemplate(cfg, "rpkg-module-pom.xml", rpkgModulePomXmlPath, getCharset(), model);
+            if (evalTemplate(rpkgModuleTemplate, rpkgModulePomXmlPath, getCharset(), model, incremental)) {
+                written++;
+            }
         } catch (IOException | TemplateException e) {
             throw new RuntimeException(e);
         }
 
+        if (incremental) {
+            final long start = report.start();
+            final Set<String> removedModules = new TreeSet<>(getManagedModules(testsParentSource));
+            removedModules.removeAll(modules);
+            final Path parentDir = testModulesParentDir.normalize();
+            for (String removedModule : removedModules) {
+                final Path removedModuleDir = resolveDeletable(parentDir, removedModule);
+                if (removedModuleDir != null) {
+                    getLog().info("Deleting test module " + removedModuleDir + " that is not needed anymore");
+                    RpkgUtils.deleteRecursively(removedModuleDir);
+                    try {
+                        Files.deleteIfExists(effectiveClasspathManifestDir.resolve(removedModule + ".txt"));
+                    } catch (IOException e) {
+                        throw new RuntimeException("Could not delete the classpath manifest of " + removedModule, e);
+                    }
+                }
+            }
+            report.stop("clean", start);
+        }
+
+        final String newTestsParentSource = addModules(testsParentSource, testsParentPath, modules);
+        final byte[] newTestsParentBytes = newTestsParentSource.getBytes(getCharset());
+        if (incremental) {
+            if (RpkgUtils.writeIfChanged(testsParentPath, newTestsParentBytes)) {
+                written++;
+            }
+            getLog().info("Updated " + written + " out of " + (modules.size() + 2) + " generated files");
+        } else {
+            try {
+                Files.write(testsParentPath, newTestsParentBytes);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write " + testsParentPath, e);
+            }
+        }
+
+        final StringBuilder manifest = new StringBuilder();
+        for (String module : modules) {
+            manifest.append(module).append('/').append('\n');
+        }
+        final Path parentDir = testModulesParentDir.toAbsolutePath().normalize();
+        final Path rpkgPomPath = rpkgModulePomXmlPath.toAbsolutePath().normalize();
+        if (rpkgPomPath.startsWith(parentDir)) {
+            manifest.append(parentDir.relativize(rpkgPomPath).toString().replace('\\', '/')).append('\n');
+        }
+        if (clean && !incremental) {
+            RpkgUtils.writeIfChanged(effectiveManifestPath, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            try {
+                Files.deleteIfExists(effectiveManifestPath);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not delete " + effectiveManifestPath, e);
+            }
+        }
+        writePerfReport();
+    }
+
+    /**
+     * Deletes the files in the module directories and the files listed in the given manifest written by a previous
+     * execution, as far as they are selected by {@link #cleanIncludes} and {@link #cleanExcludes}, and all directories
+     * that become empty thereby. The outcome is the same as with {@link #cleanByWalking(List, List)} except that the
+     * files outside of the listed entries are not visited at all. The directories are cleaned in parallel using up to
+     * {@link #threads} threads.
+     *
+     * @param manifest the manifest file to read
+     * @param compiledIncludes the compiled {@link #cleanIncludes}
+     * @param compiledExcludes the compiled {@link #cleanExcludes}
+     * @throws MojoExecutionException if the deletion fails
+     * @throws MojoFailureException if the deletion fails
+     */
+    void cleanByManifest(Path manifest, List<PathMatcher> compiledIncludes, List<PathMatcher> compiledExcludes)
+            throws MojoExecutionException, MojoFailureException {
+        final List<String> entries;
         try {
-            String testsParentSource = new String(Files.readAllBytes(testsParentPath), getCharset());
-            testsParentSource = addModules(testsParentSource, testsParentPath, modules);
-            Files.write(testsParentPath, testsParentSource.getBytes(getCharset()));
+            entries = Files.readAllLines(manifest, StandardCharsets.UTF_8);
         } catch (IOException e) {
-            throw new RuntimeException("Could not read " + testsParentPath, e);
+            throw new RuntimeException("Could not read " + manifest, e);
+        }
+        final Path parentDir = testModulesParentDir.normalize();
+        final List<Path> paths = new ArrayList<>();
+        for (String entry : entries) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            final Path path = resolveDeletable(parentDir, entry);
+            if (path != null && Files.exists(path)) {
+                paths.add(path);
+            }
+        }
+        RpkgUtils.parallelMap(paths, threads, path -> {
+            clean(parentDir, path, compiledIncludes, compiledExcludes);
+            /* A listed file may have left its directory empty */
+            for (Path dir = path.getParent(); !dir.equals(parentDir) && isEmptyDirectory(dir); dir = dir.getParent()) {
+                try {
+                    Files.deleteIfExists(dir);
+                } catch (DirectoryNotEmptyException e) {
+                    /* Another entry was just written or is being cleaned in parallel */
+                    break;
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not delete " + dir, e);
+                }
+            }
+            return null;
+        });
+    }
+
+    static boolean isEmptyDirectory(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        try (Stream<Path> items = Files.list(dir)) {
+            return !items.findFirst().isPresent();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + dir, e);
+        }
+    }
+
+    /**
+     * @param parentDir the normalized {@link #testModulesParentDir}
+     * @param relativePath a path relative to {@code parentDir} coming from a file written by a previous execution
+     * @return {@code relativePath} resolved against {@code parentDir} or {@code null} if the result is not strictly
+     *         inside of {@code parentDir} and therefore must not be deleted
+     */
+    private static Path resolveDeletable(Path parentDir, String relativePath) {
+        final Path result = parentDir.resolve(relativePath).normalize();
+        /* Never delete anything outside of testModulesParentDir */
+        return result.startsWith(parentDir) && !result.equals(parentDir) ? result : null;
+    }
+
+    /**
+     * Deletes all files under {@link #testModulesParentDir} selected by {@link #cleanIncludes} and
+     * {@link #cleanExcludes} and all directories that become empty thereby.
+     *
+     * @param compiledIncludes the compiled {@link #cleanIncludes}
+     * @param compiledExcludes the compiled {@link #cleanExcludes}
+     */
+    void cleanByWalking(List<PathMatcher> compiledIncludes, List<PathMatcher> compiledExcludes) {
+        clean(testModulesParentDir, testModulesParentDir, compiledIncludes, compiledExcludes);
+    }
+
+    /**
+     * Deletes all files under {@code root} selected by the given matchers and all directories that become empty
+     * thereby. {@code root} may also be a single file.
+     *
+     * @param parentDir the directory against which the paths are matched
+     * @param root the file or directory to clean
+     * @param compiledIncludes the compiled {@link #cleanIncludes}
+     * @param compiledExcludes the compiled {@link #cleanExcludes}
+     */
+    static void clean(Path parentDir, Path root, List<PathMatcher> compiledIncludes,
+            List<PathMatcher> compiledExcludes) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult postVisitDirectory(
+                        Path dir, IOException exc) throws IOException {
+                    boolean hasChildren = false;
+                    try (Stream<Path> items = Files.list(dir)) {
+                        hasChildren = items.findFirst().isPresent();
+                    }
+                    if (!hasChildren) {
+                        Files.deleteIfExists(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(
+                        Path file, BasicFileAttributes attrs)
+                        throws IOException {
+                    final Path relative = parentDir.relativize(file);
+                    if (compiledIncludes.stream()
+                            .anyMatch(matcher -> matcher.matches(relative))
+                            && !compiledExcludes.stream()
+                                    .anyMatch(matcher -> matcher.matches(relative))) {
+                        Files.delete(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Could not walk " + root, e);
+        }
+    }
+
+    /**
+     * Returns the test classpath of the {@code -rpkgtests} artifact of the given test jar, either from the given
+     * classpath manifest if it is up to date or by resolving the dependencies of the original test jar plus its
+     * {@code test} scoped dependencies, which is what the transformed {@code -rpkgtests} POM depends on. In the latter
+     * case the manifest is written anew.
+     *
+     * @param gav the test jar
+     * @param manifestFile the classpath manifest to read and write
+     * @return the classpath elements ready to use in the generated {@code pom.xml}
+     * @throws MojoFailureException if the resolution fails
+     */
+    List<String> getClasspath(Gav gav, Path manifestFile) throws MojoFailureException {
+        final Artifact jar = gav.asAetherArtifact("jar", null);
+        final Path pomFile;
+        try {
+            pomFile = repoSystem.resolveArtifact(repoSession,
+                    new ArtifactRequest(gav.asAetherArtifact("pom", null), repositories, null))
+                    .getArtifact().getFile().toPath();
+        } catch (ArtifactResolutionException e) {
+            throw new MojoFailureException("Could not resolve the POM of " + gav, e);
+        }
+        final String key = RpkgUtils.toHex(RpkgUtils.newDigest("SHA-256").digest((CLASSPATH_MANIFEST_VERSION + "\n"
+                + PomTransformer.FORMAT_VERSION + "\n" + gav + "\n" + RpkgUtils.sha256(pomFile) + "\n")
+                        .getBytes(StandardCharsets.UTF_8)));
+        final Path localRepo = repoSession.getLocalRepository().getBasedir().toPath().toAbsolutePath().normalize();
+
+        ClasspathManifest manifest = ClasspathManifest.read(manifestFile);
+        if (manifest == null || !key.equals(manifest.getKey()) || gav.getVersion().endsWith("-SNAPSHOT")
+                || !manifest.isComplete(localRepo)) {
+            final DependencyResult result;
+            try {
+                final ArtifactDescriptorResult descriptor = repoSystem.readArtifactDescriptor(repoSession,
+                        new ArtifactDescriptorRequest(jar, repositories, null));
+                final CollectRequest collectRequest = new CollectRequest()
+                        .setRepositories(repositories)
+                        .setManagedDependencies(descriptor.getManagedDependencies())
+                        .addDependency(new Dependency(jar, JavaScopes.COMPILE));
+                for (Dependency dependency : descriptor.getDependencies()) {
+                    if (JavaScopes.TEST.equals(dependency.getScope())) {
+                        collectRequest.addDependency(dependency.setScope(JavaScopes.COMPILE));
+                    }
+                }
+                result = repoSystem.resolveDependencies(repoSession, new DependencyRequest(collectRequest, null));
+            } catch (ArtifactDescriptorException | DependencyResolutionException e) {
+                throw new MojoFailureException("Could not resolve the test classpath of " + gav, e);
+            }
+            final Map<String, String> entries = new TreeMap<>();
+            for (ArtifactResult artifactResult : result.getArtifactResults()) {
+                final Path file = artifactResult.getArtifact().getFile().toPath().toAbsolutePath().normalize();
+                final String path = file.startsWith(localRepo) ? localRepo.relativize(file).toString()
+                        : file.toString();
+                try {
+                    entries.put(path.replace('\\', '/'), String.valueOf(Files.size(file)));
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not read the size of " + file, e);
+                }
+            }
+            manifest = new ClasspathManifest(key, entries);
+            manifest.write(manifestFile);
+        }
+        return manifest.getEntries().keySet().stream()
+                .map(p -> Paths.get(p).isAbsolute() ? p : LOCAL_REPOSITORY_PLACEHOLDER + p)
+                .collect(Collectors.toList());
+    }
+
+    Set<Gav> getShard(Set<Gav> allGavs) throws MojoFailureException {
+        if (shardCount <= 1) {
+            return allGavs;
+        }
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoFailureException(
+                    "shardIndex must be >= 0 and < shardCount " + shardCount + "; found " + shardIndex);
+        }
+        final TestTimings timings = testTimingsPath != null && Files.isRegularFile(testTimingsPath)
+                ? TestTimings.read(testTimingsPath)
+                : null;
+        final Set<Gav> result = new TreeSet<>(assignShards(new ArrayList<>(allGavs), shardCount, timings)
+                .get(shardIndex));
+        getLog().info("Generating shard " + shardIndex + " of " + shardCount + " with " + result.size() + " out of "
+                + allGavs.size() + " test jars");
+        return result;
+    }
+
+    /**
+     * Distributes the given {@link Gav}s into {@code shardCount} shards. If {@code timings} are available the longest
+     * processing time first heuristic is used: the {@link Gav}s are sorted by descending cost and each one is added
+     * to the shard having the lowest total cost so far. Otherwise the shard is determined by a stable hash of
+     * {@code groupId:artifactId}. The result depends only on the input, so all CI nodes compute the same partition.
+     *
+     * @param gavs the {@link Gav}s to distribute
+     * @param shardCount the number of shards
+     * @param timings the costs of the {@link Gav}s or {@code null}
+     * @return a {@link List} of {@code shardCount} shards
+     */
+    static List<List<Gav>> assignShards(List<Gav> gavs, int shardCount, TestTimings timings) {
+        final List<List<Gav>> result = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            result.add(new ArrayList<>());
+        }
+        if (timings == null || timings.isEmpty()) {
+            for (Gav gav : gavs) {
+                result.get(Math.floorMod(TestTimings.key(gav).hashCode(), shardCount)).add(gav);
+            }
+            return result;
+        }
+        final double defaultCost = timings.average();
+        final List<Gav> sorted = new ArrayList<>(gavs);
+        final Map<Gav, Double> costs = new HashMap<>();
+        for (Gav gav : sorted) {
+            final Double cost = timings.get(gav);
+            costs.put(gav, cost != null ? cost : defaultCost);
+        }
+        sorted.sort(Comparator.comparing((Gav gav) -> costs.get(gav)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        final double[] loads = new double[shardCount];
+        for (Gav gav : sorted) {
+            int min = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[min]) {
+                    min = i;
+                }
+            }
+            loads[min] += costs.get(gav);
+            result.get(min).add(gav);
         }
+        return result;
+    }
+
+    /**
+     * Splits the given test jars into groups of at most {@code testJarsPerModule} test jars having the same
+     * {@code groupId} and {@code version}. Within a {@code groupId} and {@code version}, the test jars are grouped in
+     * the order of their artifactIds, so that the result is stable as long as the set of test jars does not change.
+     *
+     * @param gavs the test jars to group
+     * @param testJarsPerModule the maximum size of a group; values less than {@code 2} produce a singleton group for
+     *        each test jar
+     * @return a {@link List} of non-empty groups
+     */
+    static List<List<Gav>> groupTestJars(Set<Gav> gavs, int testJarsPerModule) {
+        final List<Gav> sorted = new ArrayList<>(gavs);
+        sorted.sort(Comparator.comparing(Gav::getGroupId).thenComparing(Gav::getVersion)
+                .thenComparing(Gav::getArtifactId));
+        final List<List<Gav>> result = new ArrayList<>();
+        List<Gav> group = null;
+        for (Gav gav : sorted) {
+            if (group == null || group.size() >= testJarsPerModule
+                    || !group.get(0).getGroupId().equals(gav.getGroupId())
+                    || !group.get(0).getVersion().equals(gav.getVersion())) {
+                group = new ArrayList<>();
+                result.add(group);
+            }
+            group.add(gav);
+        }
+        return result;
+    }
+
+    /**
+     * @param replacers the {@link Replacers} to apply to the artifactId of the first test jar of the {@code group}
+     * @param group the test jars of a module
+     * @return the name of the module for the given {@code group}
+     */
+    static String moduleName(Replacers replacers, List<Gav> group) {
+        final String name = replacers.apply(group.get(0).getArtifactId());
+        return group.size() > 1 ? name + "-group" : name;
+    }
+
+    /**
+     * @param testsParentSource the source of the parent {@code pom.xml}
+     * @return the list of modules between {@link #MANAGED_MODULES_START} and {@link #MANAGED_MODULES_END} or an empty
+     *         list if there are no managed modules in the given {@code testsParentSource}
+     */
+    static List<String> getManagedModules(String testsParentSource) {
+        final int start = testsParentSource.indexOf(MANAGED_MODULES_START);
+        final int end = testsParentSource.indexOf(MANAGED_MODULES_END);
+        if (start < 0 || end < start) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>();
+        final Matcher m = MODULE_PATTERN
+                .matcher(testsParentSource.substring(start + MANAGED_MODULES_START.length(), end));
+        while (m.find()) {
+            result.add(m.group(1).trim());
+        }
+        return result;
     }
 
     static String addModules(String testsParentSource, Path path, List<String> modules) {
@@ -363,13 +875,73 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
         this.rpkgModulePomXmlPath = rpkgModulePomXmlPath.toPath();
     }
 
-    static void evalTemplate(Configuration cfg, String templateUri, Path dest, Charset charset, TemplateParams model)
-            throws IOException, TemplateException {
-        final Template template = cfg.getTemplate(templateUri);
-        Files.createDirectories(dest.getParent());
-        try (Writer out = Files.newBufferedWriter(dest)) {
-            template.process(model, out);
+    public void setManifestPath(File manifestPath) {
+        this.manifestPath = manifestPath.toPath();
+    }
+
+    public void setTestTimingsPath(File testTimingsPath) {
+        this.testTimingsPath = testTimingsPath.toPath();
+    }
+
+    public void setClasspathManifestDir(File classpathManifestDir) {
+        this.classpathManifestDir = classpathManifestDir.toPath();
+    }
+
+    /**
+     * Returns a FreeMarker {@link Configuration} for the given {@code templatesUriBase} and {@code charset}. The
+     * {@link Configuration}s are cached for the lifetime of the plugin's class realm, so that the templates are parsed
+     * only once even if the mojo is executed in many modules or in many builds of a long-living Maven daemon, such as
+     * mvnd. FreeMarker checks the modification time of {@code file:} templates whenever they are looked up, so edited
+     * templates are picked up by the subsequent executions.
+     *
+     * @param basedir the directory to resolve {@code file:} URIs against
+     * @param templatesUriBase see {@link #templatesUriBase}
+     * @param charset the encoding of the templates
+     * @return a cached or new {@link Configuration}
+     */
+    static Configuration getConfiguration(Path basedir, String templatesUriBase, Charset charset) {
+        final String key = (templatesUriBase.startsWith(FILE_PREFIX)
+                ? FILE_PREFIX + basedir.resolve(templatesUriBase.substring(FILE_PREFIX.length())).toAbsolutePath()
+                : templatesUriBase) + ";" + charset.name();
+        return CONFIGURATIONS.computeIfAbsent(key, k -> {
+            final Configuration cfg = new Configuration(Configuration.VERSION_2_3_28);
+            cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+            cfg.setTemplateLoader(createTemplateLoader(basedir, templatesUriBase));
+            cfg.setDefaultEncoding(charset.name());
+            cfg.setInterpolationSyntax(Configuration.SQUARE_BRACKET_INTERPOLATION_SYNTAX);
+            cfg.setTagSyntax(Configuration.SQUARE_BRACKET_TAG_SYNTAX);
+            if (templatesUriBase.startsWith(FILE_PREFIX)) {
+                cfg.setTemplateUpdateDelayMilliseconds(0);
+            }
+            return cfg;
+        });
+    }
+
+    /**
+     * Renders the given template and writes the result to {@code dest}. {@link Template}s are thread safe, so this
+     * method can be called concurrently.
+     *
+     * @param template the template to render
+     * @param dest the file to write
+     * @param charset the encoding of the {@code dest} file
+     * @param model the data to pass to the template
+     * @param onlyIfChanged if {@code true} the {@code dest} file is written only if its current content differs from
+     *        the rendered template
+     * @return {@code true} if {@code dest} was written; {@code false} otherwise
+     * @throws IOException if {@code dest} cannot be written
+     * @throws TemplateException if the rendering fails
+     */
+    static boolean evalTemplate(Template template, Path dest, Charset charset, TemplateParams model,
+            boolean onlyIfChanged) throws IOException, TemplateException {
+        final StringWriter out = new StringWriter();
+        template.process(model, out);
+        final byte[] content = out.toString().getBytes(charset);
+        if (onlyIfChanged) {
+            return RpkgUtils.writeIfChanged(dest, content);
         }
+        Files.createDirectories(dest.getParent());
+        Files.write(dest, content);
+        return true;
     }
 
     public static class TemplateParams {
@@ -380,9 +952,31 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
         final Gav gav;
         final Set<Gav> gavs;
         final String rpkgtestsPluginVersion;
+        final boolean testClassIndex;
+        final List<Gav> moduleTestJars;
+        final List<String> classpath;
 
         public TemplateParams(Gav parent, String parentRelativePath, Gav runTestsModule,
                 Gav rpkgModule, Gav gav, Set<Gav> gavs, String rpkgtestsPluginVersion) {
+            this(parent, parentRelativePath, runTestsModule, rpkgModule, gav, gavs, rpkgtestsPluginVersion, false);
+        }
+
+        public TemplateParams(Gav parent, String parentRelativePath, Gav runTestsModule,
+                Gav rpkgModule, Gav gav, Set<Gav> gavs, String rpkgtestsPluginVersion, boolean testClassIndex) {
+            this(parent, parentRelativePath, runTestsModule, rpkgModule, gav, gavs, rpkgtestsPluginVersion,
+                    testClassIndex, gav == null ? Collections.emptyList() : Collections.singletonList(gav));
+        }
+
+        public TemplateParams(Gav parent, String parentRelativePath, Gav runTestsModule,
+                Gav rpkgModule, Gav gav, Set<Gav> gavs, String rpkgtestsPluginVersion, boolean testClassIndex,
+                List<Gav> moduleTestJars) {
+            this(parent, parentRelativePath, runTestsModule, rpkgModule, gav, gavs, rpkgtestsPluginVersion,
+                    testClassIndex, moduleTestJars, null);
+        }
+
+        public TemplateParams(Gav parent, String parentRelativePath, Gav runTestsModule,
+                Gav rpkgModule, Gav gav, Set<Gav> gavs, String rpkgtestsPluginVersion, boolean testClassIndex,
+                List<Gav> moduleTestJars, List<String> classpath) {
             this.parent = parent;
             this.parentRelativePath = parentRelativePath;
             this.runTestsModule = runTestsModule;
@@ -390,6 +984,9 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
             this.gav = gav;
             this.gavs = gavs;
             this.rpkgtestsPluginVersion = rpkgtestsPluginVersion;
+            this.testClassIndex = testClassIndex;
+            this.moduleTestJars = moduleTestJars;
+            this.classpath = classpath;
         }
 
         public Gav getParent() {
@@ -420,6 +1017,26 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
             return rpkgtestsPluginVersion;
         }
 
+        public boolean isTestClassIndex() {
+            return testClassIndex;
+        }
+
+        /**
+         * @return the test jars to run in the module being generated; the same as {@link #getTestJar()} unless
+         *         {@code testJarsPerModule} is greater than {@code 1}
+         */
+        public List<Gav> getModuleTestJars() {
+            return moduleTestJars;
+        }
+
+        /**
+         * @return the pre-resolved test classpath of the module if {@code classpathManifest} is {@code true};
+         *         otherwise {@code null}
+         */
+        public List<String> getClasspath() {
+            return classpath;
+        }
+
     }
 
     static class Replacers {
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Ways of placing a file that is byte-for-byte identical with some other file into the local Maven repository.
+ *
+ * @since 1.0.1
+ */
+public enum InstallStrategy {
+    /** Copy the source file to the target location */
+    COPY("copy") {
+        @Override
+        void doInstall(Path source, Path target) throws IOException {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    },
+    /** Create a hard link at the target location pointing at the source file */
+    HARDLINK("hardlink") {
+        @Override
+        void doInstall(Path source, Path target) throws IOException {
+            Files.createLink(target, source);
+        }
+    },
+    /** Create a symbolic link at the target location pointing at the source file */
+    SYMLINK("symlink") {
+        @Override
+        void doInstall(Path source, Path target) throws IOException {
+            Files.createSymbolicLink(target, source.toAbsolutePath());
+        }
+    },
+    /**
+     * Create a copy-on-write clone of the source file if the underlying file system supports it. There is no API for
+     * that in the JDK, so this is delegated to {@code cp --reflink=always} which is available on Linux.
+     */
+    REFLINK_OR_COPY("reflink-or-copy") {
+        @Override
+        void doInstall(Path source, Path target) throws IOException {
+            if (File.separatorChar != '/') {
+                throw new UnsupportedOperationException("reflink is not supported on this platform");
+            }
+            final Process process = new ProcessBuilder("cp", "--reflink=always", source.toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            try {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                try (InputStream in = process.getInputStream()) {
+                    final byte[] buffer = new byte[1024];
+                    int len;
+                    while ((len = in.read(buffer)) >= 0) {
+                        output.write(buffer, 0, len);
+                    }
+                }
+                final int exitCode = process.waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("cp --reflink=always exited with " + exitCode + ": "
+                            + new String(output.toByteArray(), Charset.defaultCharset()).trim());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for cp --reflink=always", e);
+            }
+        }
+    };
+
+    private final String value;
+
+    private InstallStrategy(String value) {
+        this.value = value;
+    }
+
+    /**
+     * @param value the value to look up
+     * @return the {@link InstallStrategy} having the given {@code value}
+     * @throws IllegalArgumentException if there is no {@link InstallStrategy} having the given {@code value}
+     */
+    public static InstallStrategy of(String value) {
+        for (InstallStrategy strategy : values()) {
+            if (strategy.value.equals(value)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown installStrategy '" + value + "'; expected any of "
+                + Arrays.stream(values()).map(InstallStrategy::toString).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Makes the content of {@code source} available under {@code target} using this {@link InstallStrategy}, falling
+     * back to {@link #COPY} if the file system does not support it. Only the first fallback is logged as a warning,
+     * the subsequent ones are logged at debug level.
+     *
+     * @param source the file to install
+     * @param target the destination; it will be overwritten if it exists already
+     * @param log for reporting the fallback to copying
+     * @param fallbackReported set once the first fallback has been reported; the caller should pass the same instance
+     *        for all files installed within a single mojo execution
+     * @throws IOException if the file cannot be copied
+     */
+    public void install(Path source, Path target, Log log, AtomicBoolean fallbackReported) throws IOException {
+        Files.createDirectories(target.getParent());
+        /* Never write through a link left in place by a previous install */
+        Files.deleteIfExists(target);
+        if (this == COPY) {
+            COPY.doInstall(source, target);
+            return;
+        }
+        try {
+            doInstall(source, target);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            final String message = "Could not " + value + " " + source + " to " + target + "; falling back to copying";
+            if (fallbackReported.compareAndSet(false, true)) {
+                log.warn(message + ": " + e.getMessage() + " (further fallbacks are logged at debug level)");
+            }
+            log.debug(message, e);
+            Files.deleteIfExists(target);
+            COPY.doInstall(source, target);
+        }
+    }
+
+    abstract void doInstall(Path source, Path target) throws IOException;
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Rewrites a test jar so that it contains only the entries selected by a set of include and exclude patterns plus the
+ * classes referenced by the selected classes.
+ * <p>
+ * The patterns are Ant style paths relative to the root of the jar, such as {@code org/foo/bar/**} for a package,
+ * {@code **}{@code /*IT.class} for a class name pattern or {@code fixtures/**} for resources. A trailing {@code /} is
+ * the same as {@code /**}. An entry is selected if it matches any of the includes (or if there are no includes) and
+ * none of the excludes. The entries under {@code META-INF/} are always kept.
+ * <p>
+ * The classes present in the jar that are referenced from the constant pools of the selected classes are kept too,
+ * transitively and regardless of the excludes, so that the selected tests can be linked. Resources loaded by name
+ * cannot be detected that way and need to be included explicitly.
+ *
+ * @since 1.0.1
+ */
+public class JarFilter {
+    private static final String ALL = "**";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String META_INF = "META-INF/";
+
+    private final List<String> includes;
+    private final List<String> excludes;
+
+    /**
+     * @param includes the patterns of the entries to keep; {@code null} or empty to keep all entries not excluded
+     * @param excludes the patterns of the entries to remove; may be {@code null}
+     */
+    public JarFilter(List<String> includes, List<String> excludes) {
+        this.includes = normalize(includes);
+        this.excludes = normalize(excludes);
+    }
+
+    static List<String> normalize(List<String> patterns) {
+        if (patterns == null) {
+            return Collections.emptyList();
+        }
+        return patterns.stream()
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .map(pattern -> pattern.replace('\\', '/'))
+                .map(pattern -> pattern.startsWith("/") ? pattern.substring(1) : pattern)
+                .map(pattern -> pattern.endsWith("/") ? pattern + ALL : pattern)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param entryName the name of a zip entry
+     * @return {@code true} if the given entry is selected by the includes and excludes passed to the constructor
+     */
+    public boolean isSelected(String entryName) {
+        if (entryName.startsWith(META_INF)) {
+            return true;
+        }
+        if (!includes.isEmpty() && !matchesAny(includes, entryName)) {
+            return false;
+        }
+        return !matchesAny(excludes, entryName);
+    }
+
+    static boolean matchesAny(List<String> patterns, String entryName) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, entryName, "/", true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the entries of {@code source} selected by this {@link JarFilter} to {@code target}, preserving their
+     * order and timestamps. The {@code target} is written to a temporary file first that then replaces
+     * {@code target}, so that a link at {@code target} left by a previous installation is replaced rather than
+     * written through.
+     *
+     * @param source the jar to filter
+     * @param target the file to write
+     * @return the number of entries written to {@code target}
+     */
+    public int filter(Path source, Path target) {
+        Path tmp = null;
+        try (ZipFile zip = new ZipFile(source.toFile())) {
+            final Map<String, ZipEntry> entries = new LinkedHashMap<>();
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements();) {
+                final ZipEntry entry = en.nextElement();
+                entries.put(entry.getName(), entry);
+            }
+            final Set<String> kept = select(zip, entries);
+
+            Files.createDirectories(target.getParent());
+            tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            int count = 0;
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(tmp))) {
+                final byte[] buffer = new byte[8192];
+                for (ZipEntry entry : entries.values()) {
+                    if (!kept.contains(entry.getName())) {
+                        continue;
+                    }
+                    final ZipEntry newEntry = new ZipEntry(entry.getName());
+                    newEntry.setTime(entry.getTime());
+                    out.putNextEntry(newEntry);
+                    if (!entry.isDirectory()) {
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            copy(in, out, buffer);
+                        }
+                    }
+                    out.closeEntry();
+                    count++;
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not filter " + source + " to " + target, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    /* ignore */
+                }
+            }
+        }
+    }
+
+    /**
+     * @param zip the jar to read the class files from
+     * @param entries all entries of {@code zip} by name
+     * @return the names of the entries to keep: the selected ones, the classes they reference transitively and the
+     *         directories containing any of those
+     * @throws IOException on read errors
+     */
+    Set<String> select(ZipFile zip, Map<String, ZipEntry> entries) throws IOException {
+        final Set<String> result = new HashSet<>();
+        final Deque<String> classQueue = new ArrayDeque<>();
+        for (ZipEntry entry : entries.values()) {
+            final String name = entry.getName();
+            if (!entry.isDirectory() && isSelected(name)) {
+                result.add(name);
+                if (name.endsWith(CLASS_SUFFIX)) {
+                    classQueue.add(name);
+                }
+            }
+        }
+        final byte[] buffer = new byte[8192];
+        String className;
+        while ((className = classQueue.poll()) != null) {
+            final ClassFileInfo info;
+            try (InputStream in = zip.getInputStream(entries.get(className))) {
+                info = ClassFileInfo.parse(ByteBuffer.wrap(readAll(in, buffer)));
+            }
+            if (info == null) {
+                continue;
+            }
+            for (String referenced : info.getReferencedClasses()) {
+                final String referencedEntry = referenced + CLASS_SUFFIX;
+                if (entries.containsKey(referencedEntry) && result.add(referencedEntry)) {
+                    classQueue.add(referencedEntry);
+                }
+            }
+        }
+        final List<String> dirs = new ArrayList<>();
+        for (String name : result) {
+            int slash = name.lastIndexOf('/');
+            while (slash > 0) {
+                dirs.add(name.substring(0, slash + 1));
+                slash = name.lastIndexOf('/', slash - 1);
+            }
+        }
+        result.addAll(dirs);
+        return result;
+    }
+
+    static byte[] readAll(InputStream in, byte[] buffer) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(in, out, buffer);
+        return out.toByteArray();
+    }
+
+    static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    /**
+     * @return {@code true} if there are any includes or excludes; {@code false} otherwise
+     */
+    public boolean isFiltering() {
+        return !includes.isEmpty() || !excludes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "includes=" + includes + ";excludes=" + excludes;
+    }
+}
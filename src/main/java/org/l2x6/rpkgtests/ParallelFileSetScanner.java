@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.shared.model.fileset.FileSet;
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Selects the files matching a {@link FileSet} like {@code FileSetManager.getIncludedFiles()} does, but the
+ * subdirectories of {@link FileSet#getDirectory()} are walked in parallel and whole subtrees are pruned as soon as
+ * it is clear that they cannot contain any included file, e.g. because they match an exclude like
+ * {@code **}{@code /target/**} or a default exclude like {@code **}{@code /.git/**}.
+ *
+ * @since 1.0.1
+ */
+public class ParallelFileSetScanner {
+    private static final String ALL = "**";
+
+    private final Path dir;
+    private final List<String> includes;
+    private final List<String> excludes;
+    /** The excludes ending with {@code **} that exclude all descendants of a matching directory */
+    private final List<String> subtreeExcludes;
+    private final LinkOption[] linkOptions;
+
+    /**
+     * @param fileSet the {@link FileSet} to scan
+     */
+    public ParallelFileSetScanner(FileSet fileSet) {
+        this.dir = Paths.get(fileSet.getDirectory());
+        final List<String> rawIncludes = fileSet.getIncludes();
+        this.includes = normalize(
+                rawIncludes == null || rawIncludes.isEmpty() ? Collections.singletonList(ALL) : rawIncludes);
+        final List<String> rawExcludes = new ArrayList<>();
+        if (fileSet.getExcludes() != null) {
+            rawExcludes.addAll(fileSet.getExcludes());
+        }
+        if (fileSet.isUseDefaultExcludes()) {
+            rawExcludes.addAll(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+        }
+        this.excludes = normalize(rawExcludes);
+        this.subtreeExcludes = excludes.stream()
+                .filter(pattern -> pattern.equals(ALL) || pattern.endsWith(File.separator + ALL))
+                .collect(Collectors.toList());
+        this.linkOptions = fileSet.isFollowSymlinks() ? new LinkOption[0]
+                : new LinkOption[] { LinkOption.NOFOLLOW_LINKS };
+    }
+
+    /**
+     * Normalizes the given patterns the same way as {@code DirectoryScanner} does: the separators are replaced by the
+     * platform specific ones and a trailing separator is turned into {@code /**}.
+     *
+     * @param patterns the patterns to normalize
+     * @return a new normalized {@link List}
+     */
+    static List<String> normalize(List<String> patterns) {
+        return patterns.stream()
+                .map(String::trim)
+                .map(pattern -> pattern.replace('/', File.separatorChar).replace('\\', File.separatorChar))
+                .map(pattern -> pattern.endsWith(File.separator) ? pattern + ALL : pattern)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Walks the {@link FileSet#getDirectory()} using at most {@code threads} threads.
+     *
+     * @param threads the maximum number of threads to use
+     * @return the paths of the included files relative to {@link FileSet#getDirectory()} in no particular order
+     * @throws MojoExecutionException if walking of the directory fails
+     * @throws MojoFailureException if walking of the directory fails
+     */
+    public List<String> scan(int threads) throws MojoExecutionException, MojoFailureException {
+        final List<String> result = new ArrayList<>();
+        final List<String> subdirs = split(threads, result);
+        RpkgUtils.parallelMap(subdirs, threads, subdir -> {
+            final List<String> files = new ArrayList<>();
+            walk(subdir, files);
+            return files;
+        }).forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Lists {@link FileSet#getDirectory()} and then its subdirectories level by level until there are at least
+     * {@code threads} subdirectories to walk in parallel or nothing is left to list, so that also a tree having only a
+     * single top level directory, such as {@code extensions}, is walked by all threads.
+     *
+     * @param threads the number of threads that will walk the returned directories
+     * @param files where to add the included files found on the listed levels
+     * @return the relative paths of the directories that remain to be walked
+     */
+    List<String> split(int threads, List<String> files) {
+        List<String> subdirs = new ArrayList<>();
+        list(dir, "", files, subdirs);
+        while (!subdirs.isEmpty() && subdirs.size() < threads) {
+            final List<String> nextLevel = new ArrayList<>();
+            for (String subdir : subdirs) {
+                list(dir.resolve(subdir), subdir + File.separator, files, nextLevel);
+            }
+            subdirs = nextLevel;
+        }
+        return subdirs;
+    }
+
+    void walk(String relDir, List<String> result) {
+        final List<String> subdirs = new ArrayList<>();
+        list(dir.resolve(relDir), relDir + File.separator, result, subdirs);
+        for (String subdir : subdirs) {
+            walk(subdir, result);
+        }
+    }
+
+    void list(Path absDir, String relPrefix, List<String> files, List<String> subdirs) {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(absDir)) {
+            for (Path child : children) {
+                final String rel = relPrefix + child.getFileName().toString();
+                if (Files.isDirectory(child, linkOptions)) {
+                    if (!isSubtreeExcluded(rel) && couldHoldIncluded(rel)) {
+                        subdirs.add(rel);
+                    }
+                } else if (isIncluded(rel) && !isExcluded(rel)) {
+                    files.add(rel);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + absDir, e);
+        }
+    }
+
+    boolean isIncluded(String rel) {
+        for (String include : includes) {
+            if (SelectorUtils.matchPath(include, rel, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isExcluded(String rel) {
+        for (String exclude : excludes) {
+            if (SelectorUtils.matchPath(exclude, rel, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isSubtreeExcluded(String relDir) {
+        for (String exclude : subtreeExcludes) {
+            if (SelectorUtils.matchPath(exclude, relDir, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean couldHoldIncluded(String relDir) {
+        for (String include : includes) {
+            if (SelectorUtils.matchPatternStart(include, relDir, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
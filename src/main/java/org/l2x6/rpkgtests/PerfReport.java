@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects the time spent in the individual phases of a mojo execution, both in aggregate and per artifact, plus the
+ * number of bytes read and written by each phase. All methods are thread safe. The result is written as a JSON
+ * document with a stable structure and sorted keys, so that it can be consumed by build dashboards:
+ *
+ * <pre>
+ * {
+ *   "formatVersion": 1,
+ *   "goal": "rpkgtests",
+ *   "threads": 4,
+ *   "wallTimeMillis": 5321.042,
+ *   "peakHeapBytes": 412090368,
+ *   "phases": {
+ *     "download": {
+ *       "count": 120,
+ *       "totalMillis": 4012.583,
+ *       "maxMillis": 210.003,
+ *       "bytesRead": 73400320,
+ *       "bytesWritten": 0,
+ *       "bytesPerSecond": 18292578.4
+ *     }
+ *   },
+ *   "artifacts": {
+ *     "org.myorg:my-artifact:1.2.3": {
+ *       "download": 33.125
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * The times are wall clock times in milliseconds. With {@code threads > 1} the total of a phase is the sum over all
+ * threads and may thus exceed {@code wallTimeMillis}. {@code peakHeapBytes} is the sum of the peak usages of the heap
+ * memory pools of the whole JVM since its start, i.e. it covers also whatever ran in the same Maven process before
+ * the measured mojo.
+ *
+ * @since 1.0.1
+ */
+public class PerfReport {
+    /** Must be increased whenever the structure of the JSON document changes incompatibly */
+    static final int FORMAT_VERSION = 1;
+
+    /** A {@link PerfReport} ignoring all measurements, for mojo executions that do not write any report */
+    static final PerfReport DISABLED = new PerfReport("disabled", 0) {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void stop(String phase, Object artifact, long startNanos) {
+        }
+
+        @Override
+        public void read(String phase, LongSupplier bytes) {
+        }
+
+        @Override
+        public void written(String phase, LongSupplier bytes) {
+        }
+    };
+
+    private final String goal;
+    private final int threads;
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentMap<String, PhaseStats> phases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> artifacts = new ConcurrentHashMap<>();
+
+    /**
+     * @param goal the name of the mojo being measured
+     * @param threads the number of threads used by the mojo
+     */
+    public PerfReport(String goal, int threads) {
+        this.goal = goal;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the current value of the time source to pass to {@link #stop(String, Object, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} under the given {@code phase}.
+     *
+     * @param phase the name of the phase
+     * @param startNanos the value returned by {@link #start()}
+     */
+    public void stop(String phase, long startNanos) {
+        stop(phase, null, startNanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} under the given {@code phase}, both in aggregate and for the
+     * given {@code artifact}.
+     *
+     * @param phase the name of the phase
+     * @param artifact the artifact processed by the phase, typically a {@link Gav}; {@code null} to record the
+     *        aggregate only
+     * @param startNanos the value returned by {@link #start()}
+     */
+    public void stop(String phase, Object artifact, long startNanos) {
+        final long nanos = System.nanoTime() - startNanos;
+        phase(phase).add(nanos);
+        if (artifact != null) {
+            artifacts.computeIfAbsent(artifact.toString(), k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(phase, k -> new LongAdder())
+                    .add(nanos);
+        }
+    }
+
+    /**
+     * @param phase the name of the phase
+     * @param bytes supplies the number of bytes read by the given {@code phase}; it is not called by {@link #DISABLED}
+     */
+    public void read(String phase, LongSupplier bytes) {
+        phase(phase).bytesRead.add(bytes.getAsLong());
+    }
+
+    /**
+     * @param phase the name of the phase
+     * @param bytes supplies the number of bytes written by the given {@code phase}; it is not called by
+     *        {@link #DISABLED}
+     */
+    public void written(String phase, LongSupplier bytes) {
+        phase(phase).bytesWritten.add(bytes.getAsLong());
+    }
+
+    PhaseStats phase(String phase) {
+        return phases.computeIfAbsent(phase, k -> new PhaseStats());
+    }
+
+    /**
+     * @return this {@link PerfReport} as a JSON document
+     */
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"formatVersion\": ").append(FORMAT_VERSION).append(",\n");
+        sb.append("  \"goal\": ");
+        appendString(sb, goal);
+        sb.append(",\n");
+        sb.append("  \"threads\": ").append(threads).append(",\n");
+        sb.append("  \"wallTimeMillis\": ").append(millis(System.nanoTime() - startNanos)).append(",\n");
+        sb.append("  \"peakHeapBytes\": ").append(peakHeapBytes()).append(",\n");
+
+        sb.append("  \"phases\": {");
+        String separator = "\n";
+        for (Entry<String, PhaseStats> phase : new TreeMap<>(phases).entrySet()) {
+            final PhaseStats stats = phase.getValue();
+            final long totalNanos = stats.nanos.sum();
+            final long bytes = stats.bytesRead.sum() + stats.bytesWritten.sum();
+            sb.append(separator).append("    ");
+            appendString(sb, phase.getKey());
+            sb.append(": {\n");
+            sb.append("      \"count\": ").append(stats.count.sum()).append(",\n");
+            sb.append("      \"totalMillis\": ").append(millis(totalNanos)).append(",\n");
+            sb.append("      \"maxMillis\": ").append(millis(stats.maxNanos.get())).append(",\n");
+            sb.append("      \"bytesRead\": ").append(stats.bytesRead.sum()).append(",\n");
+            sb.append("      \"bytesWritten\": ").append(stats.bytesWritten.sum()).append(",\n");
+            sb.append("      \"bytesPerSecond\": ")
+                    .append(totalNanos == 0 ? "0.0"
+                            : String.format(Locale.ROOT, "%.1f",
+                                    bytes * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos))
+                    .append('\n');
+            sb.append("    }");
+            separator = ",\n";
+        }
+        sb.append(phases.isEmpty() ? "},\n" : "\n  },\n");
+
+        sb.append("  \"artifacts\": {");
+        separator = "\n";
+        for (Entry<String, ConcurrentMap<String, LongAdder>> artifact : new TreeMap<>(artifacts).entrySet()) {
+            sb.append(separator).append("    ");
+            appendString(sb, artifact.getKey());
+            sb.append(": {");
+            String phaseSeparator = "\n";
+            for (Entry<String, LongAdder> phase : new TreeMap<>(artifact.getValue()).entrySet()) {
+                sb.append(phaseSeparator).append("      ");
+                appendString(sb, phase.getKey());
+                sb.append(": ").append(millis(phase.getValue().sum()));
+                phaseSeparator = ",\n";
+            }
+            sb.append("\n    }");
+            separator = ",\n";
+        }
+        sb.append(artifacts.isEmpty() ? "}\n" : "\n  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes this {@link PerfReport} as a JSON document to the given file.
+     *
+     * @param path the file to write
+     */
+    public void write(Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+
+    /**
+     * @return the sum of the peak usages of all heap memory pools of the current JVM; the pools may have reached their
+     *         peaks at different times, so this is an upper bound of the actual peak heap usage
+     */
+    static long peakHeapBytes() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                result += pool.getPeakUsage().getUsed();
+            }
+        }
+        return result;
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000d);
+    }
+
+    static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    static class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+
+        void add(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * A single pass streaming transformer of a {@code pom.xml} file of a test-jar to the {@code pom.xml} of the
+ * respective {@code -rpkgtests} artifact. The transformer
+ * <ul>
+ * <li>Sets {@code /project/artifactId} to the new artifactId</li>
+ * <li>Appends {@code " - Tests"} to {@code /project/name}</li>
+ * <li>Removes {@code /project/description}, {@code /project/build} and {@code /project/profiles}</li>
+ * <li>Removes all non-{@code test} dependencies</li>
+ * <li>Removes the {@code test} scope from every remaining dependency</li>
+ * <li>Adds a dependency on the original artifact</li>
+ * </ul>
+ * Only a single dependency is held in memory at any given time, so the memory requirements depend on the depth rather
+ * than on the size of the transformed document.
+ *
+ * @since 1.0.1
+ */
+public class PomTransformer {
+    /**
+     * The version of the transformation; it must be increased whenever the output of the transformation changes so
+     * that stale {@link TransformedPomCache} entries are not used
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final String SCOPE_TEST = "test";
+    private static final String TESTS_NAME_SUFFIX = " - Tests";
+
+    /* The StAX factories are not guaranteed to be thread safe */
+    private static final ThreadLocal<XMLOutputFactory> OUTPUT_FACTORY = ThreadLocal
+            .withInitial(XMLOutputFactory::newInstance);
+    private static final ThreadLocal<XMLEventFactory> EVENT_FACTORY = ThreadLocal
+            .withInitial(XMLEventFactory::newInstance);
+
+    private final Gav artifact;
+    private final String newArtifactId;
+
+    /**
+     * @param artifact the original artifact
+     * @param newArtifactId the artifactId to set in the transformed {@code pom.xml}
+     */
+    public PomTransformer(Gav artifact, String newArtifactId) {
+        this.artifact = artifact;
+        this.newArtifactId = newArtifactId;
+    }
+
+    /**
+     * Transforms the {@code pom.xml} file under {@code source} and writes the result to {@code destination}.
+     *
+     * @param source the path to the original {@code pom.xml}
+     * @param destination the path to write the transformed {@code pom.xml} to
+     */
+    public void transform(Path source, Path destination) {
+        try {
+            Files.createDirectories(destination.getParent());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create " + destination.getParent(), e);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source));
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(destination))) {
+            transform(in, out, source.toString());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not transform " + source + " to " + destination, e);
+        }
+    }
+
+    /**
+     * Transforms the {@code pom.xml} document available from {@code in} and writes the result to {@code out} in
+     * {@code UTF-8}.
+     *
+     * @param in the original {@code pom.xml}
+     * @param out where to write the transformed {@code pom.xml}
+     * @param source a description of the {@code in} for error reporting purposes
+     * @throws IOException if flushing the {@code out} fails
+     */
+    public void transform(InputStream in, OutputStream out, String source) throws IOException {
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+        try {
+            reader = RpkgUtils.xmlInputFactory(false).createXMLEventReader(in);
+            writer = OUTPUT_FACTORY.get().createXMLEventWriter(out, "UTF-8");
+            new Transformation(writer, EVENT_FACTORY.get()).transform(reader);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Could not transform " + source, e);
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new RuntimeException("Could not close the streams for " + source, e);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * The state of a single transformation.
+     */
+    class Transformation {
+        private final XMLEventWriter writer;
+        private final XMLEventFactory eventFactory;
+
+        /** The local names of the currently open elements; the innermost is on top */
+        private final Deque<String> path = new ArrayDeque<>();
+        /** The indentations observed before start elements, by their depth */
+        private final Map<Integer, String> indents = new HashMap<>();
+        private String eol = "";
+
+        /** The whitespace seen since the last non-whitespace event */
+        private String pendingWhitespace;
+        /** The depth of the element whose subtree is being dropped or {@code -1} */
+        private int skipDepth = -1;
+        /** The events of a dependency being processed or {@code null} */
+        private List<XMLEvent> dependencyBuffer;
+        private String dependencyScope;
+        /** The text of a captured element or {@code null} */
+        private StringBuilder capturedText;
+        private String capturedElement;
+
+        private QName projectName;
+        private String oldArtifactId;
+        private boolean dependenciesSeen;
+
+        Transformation(XMLEventWriter writer, XMLEventFactory eventFactory) {
+            this.writer = writer;
+            this.eventFactory = eventFactory;
+        }
+
+        void transform(XMLEventReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                final XMLEvent event = reader.nextEvent();
+                switch (event.getEventType()) {
+                    case XMLEvent.START_DOCUMENT:
+                        writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+                        writer.add(eventFactory.createCharacters("\n"));
+                        break;
+                    case XMLEvent.END_DOCUMENT:
+                        writer.add(eventFactory.createCharacters("\n"));
+                        writer.add(event);
+                        break;
+                    case XMLEvent.START_ELEMENT:
+                        startElement(event.asStartElement());
+                        break;
+                    case XMLEvent.END_ELEMENT:
+                        endElement(event.asEndElement());
+                        break;
+                    case XMLEvent.CHARACTERS:
+                    case XMLEvent.CDATA:
+                    case XMLEvent.SPACE:
+                        characters(event.asCharacters());
+                        break;
+                    default:
+                        if (skipDepth >= 0 || capturedText != null) {
+                            /* ignore */
+                        } else if (path.isEmpty()) {
+                            /* A comment or processing instruction in the prolog or epilog */
+                            writer.add(event);
+                            writer.add(eventFactory.createCharacters("\n"));
+                        } else {
+                            flushWhitespace();
+                            emit(event);
+                        }
+                        break;
+                }
+            }
+        }
+
+        void startElement(StartElement event) throws XMLStreamException {
+            final String name = event.getName().getLocalPart();
+            final int depth = path.size();
+            final String parent = path.peek();
+            path.push(name);
+            if (skipDepth >= 0) {
+                return;
+            }
+            recordIndent(depth);
+            switch (depth) {
+                case 0:
+                    projectName = event.getName();
+                    break;
+                case 1:
+                    switch (name) {
+                        case "description":
+                        case "build":
+                        case "profiles":
+                            skip(depth);
+                            return;
+                        case "artifactId":
+                            if (oldArtifactId == null) {
+                                capture(name);
+                            }
+                            break;
+                        case "name":
+                            capture(name);
+                            break;
+                        case "dependencies":
+                            dependenciesSeen = true;
+                            break;
+                        default:
+                            break;
+                    }
+                    break;
+                case 2:
+                    if ("dependency".equals(name) && "dependencies".equals(parent)) {
+                        dependencyBuffer = new ArrayList<>();
+                        dependencyScope = null;
+                    }
+                    break;
+                case 3:
+                    if ("scope".equals(name) && dependencyBuffer != null) {
+                        skip(depth);
+                        capture(name);
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            flushWhitespace();
+            emit(event);
+        }
+
+        void endElement(EndElement event) throws XMLStreamException {
+            final String name = path.pop();
+            final int depth = path.size();
+            if (skipDepth >= 0) {
+                if (depth == skipDepth) {
+                    skipDepth = -1;
+                    if (capturedText != null) {
+                        dependencyScope = capturedText.toString().trim();
+                        capturedText = null;
+                    }
+                }
+                return;
+            }
+            if (capturedText != null) {
+                final String text = capturedText.toString();
+                capturedText = null;
+                if ("artifactId".equals(capturedElement)) {
+                    oldArtifactId = text.trim();
+                    emit(eventFactory.createCharacters(newArtifactId));
+                } else {
+                    emit(eventFactory.createCharacters(text + TESTS_NAME_SUFFIX));
+                }
+            }
+            if (depth == 2 && dependencyBuffer != null && "dependency".equals(name)) {
+                flushWhitespace();
+                emit(event);
+                final List<XMLEvent> dependencyEvents = dependencyBuffer;
+                dependencyBuffer = null;
+                if (SCOPE_TEST.equals(dependencyScope)) {
+                    for (XMLEvent e : dependencyEvents) {
+                        writer.add(e);
+                    }
+                }
+                return;
+            }
+            if (depth == 1 && "dependencies".equals(name)) {
+                writeOriginalDependency(2);
+            } else if (depth == 0 && !dependenciesSeen) {
+                writeIndent(1);
+                emit(eventFactory.createStartElement(projectName.getPrefix(), projectName.getNamespaceURI(),
+                        "dependencies"));
+                writeOriginalDependency(2);
+                writeIndent(1);
+                emit(eventFactory.createEndElement(projectName.getPrefix(), projectName.getNamespaceURI(),
+                        "dependencies"));
+            }
+            flushWhitespace();
+            emit(event);
+        }
+
+        void characters(Characters event) throws XMLStreamException {
+            if (capturedText != null) {
+                capturedText.append(event.getData());
+            } else if (skipDepth >= 0 || path.isEmpty()) {
+                /* ignore */
+            } else if (isWhitespace(event.getData())) {
+                pendingWhitespace = pendingWhitespace == null ? event.getData() : pendingWhitespace + event.getData();
+            } else {
+                flushWhitespace();
+                emit(event);
+            }
+        }
+
+        void writeOriginalDependency(int depth) throws XMLStreamException {
+            writeIndent(depth);
+            emit(eventFactory.createStartElement(projectName.getPrefix(), projectName.getNamespaceURI(),
+                    "dependency"));
+            writeTextElement(depth + 1, "groupId", artifact.getGroupId());
+            writeTextElement(depth + 1, "artifactId", oldArtifactId != null ? oldArtifactId : artifact.getArtifactId());
+            writeTextElement(depth + 1, "version", artifact.getVersion());
+            writeIndent(depth);
+            emit(eventFactory.createEndElement(projectName.getPrefix(), projectName.getNamespaceURI(), "dependency"));
+        }
+
+        void writeTextElement(int depth, String name, String text) throws XMLStreamException {
+            writeIndent(depth);
+            emit(eventFactory.createStartElement(projectName.getPrefix(), projectName.getNamespaceURI(), name));
+            emit(eventFactory.createCharacters(text));
+            emit(eventFactory.createEndElement(projectName.getPrefix(), projectName.getNamespaceURI(), name));
+        }
+
+        void writeIndent(int depth) throws XMLStreamException {
+            String indent = indents.get(depth);
+            if (indent == null) {
+                final String unit = indents.getOrDefault(1, "");
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < depth; i++) {
+                    sb.append(unit);
+                }
+                indent = sb.toString();
+            }
+            emit(eventFactory.createCharacters(eol + indent));
+        }
+
+        void recordIndent(int depth) {
+            if (pendingWhitespace != null) {
+                final int lfPos = pendingWhitespace.lastIndexOf('\n');
+                if (lfPos >= 0) {
+                    indents.put(depth, pendingWhitespace.substring(lfPos + 1));
+                    if (eol.isEmpty()) {
+                        eol = lfPos > 0 && pendingWhitespace.charAt(lfPos - 1) == '\r' ? "\r\n" : "\n";
+                    }
+                }
+            }
+        }
+
+        void skip(int depth) {
+            skipDepth = depth;
+            /* Drop the indentation of the skipped element */
+            pendingWhitespace = null;
+        }
+
+        void capture(String elementName) {
+            capturedElement = elementName;
+            capturedText = new StringBuilder();
+        }
+
+        void flushWhitespace() throws XMLStreamException {
+            if (pendingWhitespace != null) {
+                final String ws = pendingWhitespace;
+                pendingWhitespace = null;
+                emit(eventFactory.createCharacters(ws));
+            }
+        }
+
+        void emit(XMLEvent event) throws XMLStreamException {
+            if (dependencyBuffer != null) {
+                dependencyBuffer.add(event);
+            } else {
+                writer.add(event);
+            }
+        }
+
+    }
+
+    static boolean isWhitespace(String data) {
+        for (int i = 0; i < data.length(); i++) {
+            if (!Character.isWhitespace(data.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -18,26 +18,20 @@ package org.l2x6.rpkgtests;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
@@ -54,10 +48,15 @@ import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResult;
 import org.apache.maven.shared.transfer.dependencies.resolve.DependencyResolver;
 import org.apache.maven.shared.transfer.dependencies.resolve.DependencyResolverException;
 import org.apache.maven.shared.transfer.repository.RepositoryManager;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.resolution.DependencyResult;
+import org.eclipse.aether.util.artifact.JavaScopes;
 
 /**
  * A mojo to repackage test JARs.
@@ -68,16 +67,25 @@ import org.w3c.dom.NodeList;
 @Mojo(name = "rpkgtests", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
 public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMojo {
 
-    /** The directory where this mojo stores its temporary files */
+    /**
+     * The directory where this mojo stores its temporary files
+     *
+     * @deprecated not used since 1.0.1 as the transformed POMs are written directly to the local Maven repository
+     */
+    @Deprecated
     @Parameter(property = "rpkgtests.workDir", defaultValue = "${project.build.directory}/rpkgtests")
     private File workDir;
 
     /**
      * If {@code true} the mojo donwloads, transforms and installs all {@link #testJars} even if some or all of them are
      * installed already. Otherwise, if an artifact with the transformed name is available in the local Maven
-     * repository, the mojo does nothing for that particular artifact.
+     * repository and its fingerprint matches the current source POM, source {@code tests} jar, version of this
+     * plugin and the parameters influencing the repackaged artifact (such as {@link #installStrategy}), the mojo does
+     * nothing for that particular artifact. The source files are hashed only if their size or last modification time
+     * differ from the ones stored in the fingerprint.
      *
-     * {@link #force} is implictly {@code true} for all {@link #testJars} having version ending with {@code -SNAPSHOT}.
+     * {@link #testJars} having version ending with {@code -SNAPSHOT} are always downloaded but they are transformed
+     * and installed only if their fingerprint has changed or if {@link #force} is {@code true}.
      */
     @Parameter(property = "rpkgtests.force", defaultValue = "false")
     private boolean force;
@@ -86,9 +94,135 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
     @Parameter(property = "rpkgtests.skip", defaultValue = "false")
     private boolean skip;
 
+    /**
+     * If {@code true} only the {@code tests} jar and the POM of each of the {@link #testJars} will be downloaded;
+     * otherwise the whole transitive dependency tree of the given {@code tests} jar will be resolved.
+     * <p>
+     * The transitive dependencies are not needed for the repackaging itself and the modules running the repackaged
+     * tests resolve them anyway. Hence setting this to {@code true} can save some time and disk space.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.fetchOnly", defaultValue = "false")
+    private boolean fetchOnly;
+
+    /**
+     * If {@code true} the dependencies of all repackaged {@code -rpkgtests} artifacts will be collected and resolved in
+     * a single request after all {@link #testJars} were repackaged. Dependencies shared by many test jars (such as
+     * testing frameworks) are thus mediated and downloaded only once and the local Maven repository is ready for the
+     * modules running the repackaged tests.
+     * <p>
+     * This implies {@link #fetchOnly} for the individual {@link #testJars}.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.resolveUnion", defaultValue = "false")
+    private boolean resolveUnion;
+
+    /**
+     * If {@code true} the {@code tests} jar and the POM of each non-SNAPSHOT artifact out of {@link #testJars} that
+     * are present in the local Maven repository are repackaged straight away without consulting the resolver. Thus no
+     * remote update checks are made and no dependency graph is built for them. The same happens regardless of this
+     * parameter when Maven runs in offline mode.
+     * <p>
+     * Note that the transitive dependencies of such artifacts are not resolved, as if {@link #fetchOnly} was
+     * {@code true}, and that the remote repository the files were originally downloaded from is not checked.
+     * {@code -SNAPSHOT} artifacts are always resolved.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.preferLocal", defaultValue = "false")
+    private boolean preferLocal;
+
+    /**
+     * How to place the original {@code tests} jar under the {@code -rpkgtests} coordinates in the local Maven
+     * repository. The following values are supported:
+     * <ul>
+     * <li>{@code copy} - copy the file</li>
+     * <li>{@code hardlink} - create a hard link to the original file</li>
+     * <li>{@code symlink} - create a symbolic link to the original file</li>
+     * <li>{@code reflink-or-copy} - create a copy-on-write clone of the original file using
+     * {@code cp --reflink=always}</li>
+     * </ul>
+     * All strategies other than {@code copy} fall back to copying if the file system or platform does not support
+     * them.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.installStrategy", defaultValue = "copy")
+    private String installStrategy;
+
+    /**
+     * If {@code true} the concrete test classes contained in each test jar are listed in a
+     * {@code <artifactId>-rpkgtests-<version>-test-classes.txt} file installed next to the {@code -rpkgtests} jar in
+     * the local Maven repository. The file can be passed to Surefire's {@code includesFile} (see
+     * {@code testClassIndex} of the {@code create-test-modules} mojo) so that Surefire considers only the listed
+     * classes. The test jar is indexed by reading its zip central directory and the headers of the class files; no
+     * classes are loaded.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.testClassIndex", defaultValue = "false")
+    private boolean testClassIndex;
+
+    /**
+     * Ant style patterns of the entries of the original {@code tests} jars to keep in the {@code -rpkgtests} jars,
+     * relative to the root of the jar, e.g. {@code org/foo/bar/**} for a package, {@code **}{@code /*IT.class} for a
+     * class name pattern or {@code fixtures/**} for resources. If any {@link #jarIncludes} or {@link #jarExcludes}
+     * are set, the {@code -rpkgtests} jars are rewritten instead of being installed through {@link #installStrategy}.
+     * Besides the selected entries, the rewritten jars contain the classes referenced by the selected classes and
+     * everything under {@code META-INF/}. If no {@link #jarIncludes} are set, all entries not matched by
+     * {@link #jarExcludes} are selected.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.jarIncludes")
+    private List<String> jarIncludes;
+
+    /**
+     * Ant style patterns of the entries of the original {@code tests} jars to remove from the {@code -rpkgtests}
+     * jars. See {@link #jarIncludes}. Note that the classes referenced by the selected classes are kept even if they
+     * match some of the excludes.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.jarExcludes")
+    private List<String> jarExcludes;
+
+    /**
+     * If {@code true} the transformed POMs will be stored in and reused from {@link #pomCacheDir}. The entries are
+     * keyed by a hash of the content of the source POM and of the transformation settings, so the cache can be safely
+     * shared by all builds and projects on a machine.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.pomCache", defaultValue = "false")
+    private boolean pomCache;
+
+    /**
+     * The directory where to store the transformed POMs if {@link #pomCache} is {@code true}. If not set, the cache
+     * is located under {@code .cache/rpkgtests-maven-plugin/transformed-poms} in the local Maven repository.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.pomCacheDir")
+    private File pomCacheDir;
+
+    /**
+     * The maximum total size of the entries in {@link #pomCacheDir} in bytes. When the cache grows beyond this limit,
+     * the least recently used entries are removed.
+     *
+     * @since 1.0.1
+     */
+    @Parameter(property = "rpkgtests.pomCacheMaxSize", defaultValue = "67108864")
+    private long pomCacheMaxSize;
+
     @Parameter(defaultValue = "${project.remoteArtifactRepositories}", readonly = true, required = true)
     private List<ArtifactRepository> pomRemoteRepositories;
 
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
     @Component
     private MavenProject project;
 
@@ -101,170 +235,365 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
     @Component
     private RepositoryManager repositoryManager;
 
+    /* Report the first fallback of the installStrategy of this execution loudly and the rest at debug level only */
+    private final AtomicBoolean installFallbackReported = new AtomicBoolean();
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
             getLog().info("Skipping as requested via the skip mojo parameter");
         }
-        for (Gav artifact : getTestJarsOrFail()) {
+        final InstallStrategy effectiveInstallStrategy = InstallStrategy.of(installStrategy);
+        final JarFilter jarFilter = new JarFilter(jarIncludes, jarExcludes);
+        final TransformedPomCache transformedPomCache = pomCache
+                ? new TransformedPomCache(pomCacheDir != null ? pomCacheDir.toPath()
+                        : repoSession.getLocalRepository().getBasedir().toPath()
+                                .resolve(".cache/rpkgtests-maven-plugin/transformed-poms"),
+                        pomCacheMaxSize)
+                : null;
+        final Set<Gav> artifacts = getTestJarsOrFail();
+        final List<LocalRepoArtifact> rpkgArtifacts = new ArrayList<>();
+        for (Gav artifact : artifacts) {
             final LocalRepoArtifact localRepoArtifact = createLocalRepoArtifact(artifact);
             final boolean installed = localRepoArtifact.installed;
-            final boolean isSnapshot = artifact.version.endsWith("-SNAPSHOT");
-            final boolean performRpkg = force || !installed || isSnapshot;
+            final boolean upToDate = installed && isUpToDate(localRepoArtifact, effectiveInstallStrategy);
+            final boolean isSnapshot = localRepoArtifact.isSnapshot();
+            final boolean performRpkg = force || !upToDate || isSnapshot;
             getLog()
                     .info("force = " + force + "; " + localRepoArtifact.artifact
                             + (installed ? " installed;" : " not installed;")
+                            + (upToDate ? " up to date;" : " not up to date;")
                             + (isSnapshot ? " is SNAPSHOT;" : " is not SNAPSHOT;")
                             + (performRpkg ? " thus repackaging" : " thus skipping the repackaging"));
             if (performRpkg) {
-                download(localRepoArtifact);
-                final InstallableArtifact installable = transform(localRepoArtifact);
-                install(installable);
+                rpkgArtifacts.add(localRepoArtifact);
+            }
+        }
+        final List<Boolean> repackaged = RpkgUtils.parallelMap(rpkgArtifacts, threads,
+                localRepoArtifact -> repackage(localRepoArtifact, effectiveInstallStrategy, jarFilter,
+                        transformedPomCache));
+        for (int i = 0; i < repackaged.size(); i++) {
+            if (!repackaged.get(i)) {
+                getLog().info(rpkgArtifacts.get(i).artifact
+                        + " has not changed since it was repackaged last time; thus skipping the repackaging");
             }
         }
+        if (transformedPomCache != null) {
+            final long start = getPerfReport().start();
+            transformedPomCache.evict(getLog());
+            getPerfReport().stop("pom-cache-eviction", start);
+        }
+        if (resolveUnion) {
+            final long start = getPerfReport().start();
+            resolveUnion(artifacts);
+            getPerfReport().stop("resolve-union", start);
+        }
+        writePerfReport();
     }
 
-    private LocalRepoArtifact createLocalRepoArtifact(Gav artifact) {
-        final ProjectBuildingRequest request = session.getProjectBuildingRequest();
-        final Path repoRoot = repositoryManager.getLocalRepositoryBasedir(request).toPath();
+    /**
+     * Resolves the dependencies of the {@code -rpkgtests} artifacts of all given {@code artifacts} in a single
+     * {@link DependencyRequest}.
+     *
+     * @param artifacts the test jars whose repackaged counterparts should be resolved
+     * @throws MojoFailureException if the resolution fails
+     */
+    private void resolveUnion(Set<Gav> artifacts) throws MojoFailureException {
+        final CollectRequest collectRequest = createUnionCollectRequest(artifacts, repositories);
+        final int count = collectRequest.getDependencies().size();
+        getLog().info("Resolving the dependencies of " + count + " repackaged test jars");
+        try {
+            repoSystem.resolveDependencies(repoSession, new DependencyRequest(collectRequest, null));
+        } catch (DependencyResolutionException e) {
+            throw new MojoFailureException(unionFailureMessage(count, e.getResult()), e);
+        }
+    }
 
-        final String newAId = artifact.artifactId + "-rpkgtests";
-        final Path newJarPath = repoRoot.resolve(
-                repositoryManager.getPathForLocalArtifact(request, artifact.asArtifactCoordinate(newAId, "jar", null)));
-        final Path newPomPath = repoRoot.resolve(
-                repositoryManager.getPathForLocalArtifact(request, artifact.asArtifactCoordinate(newAId, "pom", null)));
-        final Path oldJarPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
-                artifact.asArtifactCoordinate(artifact.artifactId, "jar", "tests")));
-        final Path oldPomPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
-                artifact.asArtifactCoordinate(artifact.artifactId, "pom", null)));
+    /**
+     * @param artifacts the test jars whose repackaged counterparts should be resolved; duplicates are ignored
+     * @param repositories the remote repositories to resolve from
+     * @return a {@link CollectRequest} having a single {@code test} scoped root dependency for each distinct
+     *         {@code -rpkgtests} artifact
+     */
+    static CollectRequest createUnionCollectRequest(Collection<Gav> artifacts, List<RemoteRepository> repositories) {
+        final CollectRequest collectRequest = new CollectRequest().setRepositories(repositories);
+        artifacts.stream()
+                .map(artifact -> artifact.withArtifactId(artifact.artifactId + "-rpkgtests"))
+                .distinct()
+                .forEach(artifact -> collectRequest
+                        .addDependency(new Dependency(artifact.asAetherArtifact("jar", null), JavaScopes.TEST)));
+        return collectRequest;
+    }
 
-        final LocalRepoArtifact localRepoArtifact = new LocalRepoArtifact(artifact, newAId,
-                Files.exists(newJarPath) && Files.exists(newPomPath), newJarPath, newPomPath, oldJarPath, oldPomPath);
-        return localRepoArtifact;
+    /**
+     * @param count the number of the repackaged test jars whose dependencies were resolved
+     * @param result the partial result of the failed resolution; can be {@code null}
+     * @return a message listing the artifacts that could not be resolved
+     */
+    static String unionFailureMessage(int count, DependencyResult result) {
+        final String failed = result == null || result.getArtifactResults() == null ? ""
+                : result.getArtifactResults().stream()
+                        .filter(r -> !r.isResolved())
+                        .map(r -> r.getRequest().getArtifact().toString())
+                        .collect(Collectors.joining(", "));
+        return "Could not resolve the dependencies of " + count + " repackaged test jars"
+                + (failed.isEmpty() ? "" : "; unresolved: " + failed);
     }
 
-    private void install(InstallableArtifact installable) throws MojoExecutionException {
+    /**
+     * Downloads, transforms and installs the given {@link LocalRepoArtifact}.
+     *
+     * @param localRepoArtifact the artifact to repackage
+     * @param installStrategy the {@link InstallStrategy} to use for the {@code -rpkgtests} jar
+     * @param jarFilter the {@link JarFilter} to apply to the {@code -rpkgtests} jar if it has any includes or
+     *        excludes
+     * @param transformedPomCache the cache of transformed POMs or {@code null} if the cache should not be used
+     * @return {@code true} if the artifact was repackaged or {@code false} if the downloaded SNAPSHOT has not changed
+     *         since it was repackaged last time
+     * @throws MojoExecutionException on installation errors
+     * @throws MojoFailureException on download errors
+     */
+    private boolean repackage(LocalRepoArtifact localRepoArtifact, InstallStrategy installStrategy,
+            JarFilter jarFilter, TransformedPomCache transformedPomCache)
+            throws MojoExecutionException, MojoFailureException {
+        final PerfReport report = getPerfReport();
+        final Gav artifact = localRepoArtifact.artifact;
+        long start = report.start();
+        download(localRepoArtifact);
+        report.stop("download", artifact, start);
+        report.read("download",
+                () -> size(localRepoArtifact.oldLocalRepoJarPath) + size(localRepoArtifact.oldLocalRepoPomPath));
+        if (!force && localRepoArtifact.installed && localRepoArtifact.isSnapshot()
+                && isUpToDate(localRepoArtifact, installStrategy)) {
+            return false;
+        }
         try {
-            Files.createDirectories(installable.local.newLocalRepoJarPath.getParent());
-            Files.copy(installable.local.oldLocalRepoJarPath, installable.local.newLocalRepoJarPath,
-                    StandardCopyOption.REPLACE_EXISTING);
+            /* Make sure that a partially installed artifact will not be considered up to date */
+            Files.deleteIfExists(localRepoArtifact.fingerprintPath);
         } catch (IOException e) {
-            throw new RuntimeException("Could not copy from " + installable.local.oldLocalRepoJarPath + " to "
-                    + installable.local.newLocalRepoJarPath, e);
+            throw new RuntimeException("Could not delete " + localRepoArtifact.fingerprintPath, e);
         }
+        getLog().warn("Transforming " + artifact);
+        start = report.start();
+        transform(localRepoArtifact, transformedPomCache);
+        report.stop("transform", artifact, start);
+        report.read("transform", () -> size(localRepoArtifact.oldLocalRepoPomPath));
+        report.written("transform", () -> size(localRepoArtifact.newLocalRepoPomPath));
+
+        start = report.start();
+        if (jarFilter.isFiltering()) {
+            final int count = jarFilter.filter(localRepoArtifact.oldLocalRepoJarPath,
+                    localRepoArtifact.newLocalRepoJarPath);
+            getLog().debug("Kept " + count + " entries of " + localRepoArtifact.oldLocalRepoJarPath + " in "
+                    + localRepoArtifact.newLocalRepoJarPath);
+        } else {
+            install(localRepoArtifact, installStrategy);
+        }
+        report.stop("install", artifact, start);
+        report.read("install", () -> size(localRepoArtifact.oldLocalRepoJarPath));
+        report.written("install", () -> size(localRepoArtifact.newLocalRepoJarPath));
+
+        if (testClassIndex) {
+            start = report.start();
+            TestClassIndex.write(TestClassIndex.scan(localRepoArtifact.newLocalRepoJarPath),
+                    localRepoArtifact.testClassIndexPath);
+            report.stop("index", artifact, start);
+            report.read("index", () -> size(localRepoArtifact.newLocalRepoJarPath));
+        }
+        writeFingerprint(fingerprint(localRepoArtifact, installStrategy, localRepoArtifact.fingerprint),
+                localRepoArtifact.fingerprintPath);
+        return true;
+    }
+
+    /**
+     * @param path the file whose size should be returned
+     * @return the size of the given file or {@code 0} if it does not exist; symbolic links are not followed, so that
+     *         the files installed via {@link InstallStrategy#SYMLINK} do not count as written bytes
+     */
+    static long size(Path path) {
         try {
-            Files.createDirectories(installable.local.newLocalRepoPomPath.getParent());
-            Files.copy(installable.sourcePomPath, installable.local.newLocalRepoPomPath, StandardCopyOption.REPLACE_EXISTING);
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).size();
         } catch (IOException e) {
-            throw new RuntimeException(
-                    "Could not copy from " + installable.sourcePomPath + " to " + installable.local.newLocalRepoPomPath,
-                    e);
+            return 0;
         }
     }
 
     /**
-     * A generator of XPath 1.0 "any namespace" selector, such as
-     * {@code /*:[local-name()='foo']/*:[local-name()='bar']}. In XPath 2.0, this would be just {@code /*:foo/*:bar},
-     * but as of Java 13, there is only XPath 1.0 available in the JDK.
-     *
-     * @param elements namespace-less element names
-     * @return am XPath 1.0 style selector
+     * @param localRepoArtifact the artifact to check
+     * @param installStrategy the {@link InstallStrategy} used for the {@code -rpkgtests} jar
+     * @return {@code true} if the fingerprint stored along with the repackaged artifact matches the current source
+     *         artifacts, the version of this plugin and the relevant parameters; {@code false} otherwise
      */
-    static String anyNs(String... elements) {
-        StringBuilder sb = new StringBuilder();
-        for (String e : elements) {
-            sb.append("/*[local-name()='").append(e).append("']");
+    private boolean isUpToDate(LocalRepoArtifact localRepoArtifact, InstallStrategy installStrategy) {
+        if (!Files.exists(localRepoArtifact.fingerprintPath) || !Files.exists(localRepoArtifact.oldLocalRepoJarPath)
+                || !Files.exists(localRepoArtifact.oldLocalRepoPomPath)
+                || (testClassIndex && !Files.exists(localRepoArtifact.testClassIndexPath))) {
+            return false;
         }
-        return sb.toString();
+        final Map<String, String> storedFingerprint = readFingerprint(localRepoArtifact.fingerprintPath);
+        final Map<String, String> previous = localRepoArtifact.fingerprint != null ? localRepoArtifact.fingerprint
+                : storedFingerprint;
+        return storedFingerprint.equals(fingerprint(localRepoArtifact, installStrategy, previous));
     }
 
-    static Node textElement(Document document, String elementName, String value) {
-        final Node result = document.createElement(elementName);
-        result.appendChild(document.createTextNode(value));
+    /**
+     * Computes the fingerprint of the given {@link LocalRepoArtifact} and remembers it in
+     * {@link LocalRepoArtifact#fingerprint}, so that the source files do not need to be hashed again later in the
+     * same build unless they change.
+     *
+     * @param localRepoArtifact the artifact whose fingerprint should be computed
+     * @param installStrategy the {@link InstallStrategy} used for the {@code -rpkgtests} jar
+     * @param previous a fingerprint computed earlier for the same artifact whose hashes can be reused if the source
+     *        files have not changed since then; can be {@code null}
+     * @return a {@link Map} covering the hashes of the source POM and source {@code tests} jar, the version of this
+     *         plugin and the parameters influencing the repackaged artifact
+     */
+    private Map<String, String> fingerprint(LocalRepoArtifact localRepoArtifact, InstallStrategy installStrategy,
+            Map<String, String> previous) {
+        final Map<String, String> result = new LinkedHashMap<>();
+        result.put("pluginVersion", pluginVersion);
+        putFile(result, "pom", localRepoArtifact.oldLocalRepoPomPath, previous);
+        putFile(result, "jar", localRepoArtifact.oldLocalRepoJarPath, previous);
+        result.put("testClassIndex", String.valueOf(testClassIndex));
+        result.put("jarFilter", new JarFilter(jarIncludes, jarExcludes).toString());
+        result.put("installStrategy", installStrategy.toString());
+        localRepoArtifact.fingerprint = result;
         return result;
     }
 
-    private InstallableArtifact transform(LocalRepoArtifact localRepoArtifact) {
-        final Gav artifact = localRepoArtifact.artifact;
-
+    /**
+     * Adds the size, the last modification time and the SHA-256 hash of the given {@code file} to the given
+     * {@code fingerprint}. The hash is taken over from {@code previous} if it contains the same size and last
+     * modification time under the same {@code key}; otherwise the file is hashed.
+     *
+     * @param fingerprint the fingerprint to add the entries to
+     * @param key the prefix of the entries
+     * @param file the file to describe
+     * @param previous the fingerprint to take the hash from if the file has not changed; can be {@code null}
+     */
+    static void putFile(Map<String, String> fingerprint, String key, Path file, Map<String, String> previous) {
+        final String size;
+        final String lastModified;
         try {
-            final Transformer t = TransformerFactory.newInstance().newTransformer();
-            final XPath xPath = XPathFactory.newInstance().newXPath();
-            getLog().warn("Transforming " + artifact);
-            final Path pomPath = localRepoArtifact.oldLocalRepoPomPath;
-            final DOMResult result = new DOMResult();
-            try (Reader r = Files.newBufferedReader(pomPath)) {
-                t.transform(new StreamSource(r), result);
-            } catch (IOException e) {
-                throw new RuntimeException("Could not read " + pomPath, e);
-            } catch (TransformerException e) {
-                throw new RuntimeException("Could not transform to DOM: " + pomPath, e);
-            }
-            final Document doc = (Document) result.getNode();
-            final Node artifactNode = (Node) xPath.evaluate(anyNs("project", "artifactId"), doc, XPathConstants.NODE);
-            final String oldArtifactId = artifactNode.getTextContent();
-            artifactNode.setTextContent(localRepoArtifact.newArtifactId);
-
-            final Node nameNode = (Node) xPath.evaluate(anyNs("project", "name"), doc, XPathConstants.NODE);
-            if (nameNode != null) {
-                nameNode.setTextContent(nameNode.getTextContent() + " - Tests");
-            }
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            size = String.valueOf(attributes.size());
+            lastModified = String.valueOf(attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the attributes of " + file, e);
+        }
+        fingerprint.put(key + ".size", size);
+        fingerprint.put(key + ".lastModified", lastModified);
+        final String previousHash = previous == null ? null : previous.get(key + ".sha256");
+        if (previousHash != null && size.equals(previous.get(key + ".size"))
+                && lastModified.equals(previous.get(key + ".lastModified"))) {
+            fingerprint.put(key + ".sha256", previousHash);
+        } else {
+            fingerprint.put(key + ".sha256", RpkgUtils.sha256(file));
+        }
+    }
 
-            remove(xPath, anyNs("project", "description"), doc);
-
-            final NodeList deps = (NodeList) xPath.evaluate(anyNs("project", "dependencies", "dependency"), doc,
-                    XPathConstants.NODESET);
-            for (int i = 0; i < deps.getLength(); i++) {
-                final Node dep = deps.item(i);
-                final Node scope = (Node) xPath.evaluate("*[local-name()='scope']", dep, XPathConstants.NODE);
-                if (scope != null && "test".equals(scope.getTextContent())) {
-                    scope.getParentNode().removeChild(scope);
-                } else {
-                    dep.getParentNode().removeChild(dep);
+    /**
+     * @param path the fingerprint file to read
+     * @return the {@code key=value} entries stored in the given file or an empty {@link Map} if the file does not
+     *         exist
+     */
+    static Map<String, String> readFingerprint(Path path) {
+        final Map<String, String> result = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return result;
+        }
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                final int eqPos = line.indexOf('=');
+                if (eqPos > 0) {
+                    result.put(line.substring(0, eqPos), line.substring(eqPos + 1));
                 }
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+        return result;
+    }
 
-            Node depsNode = (Node) xPath.evaluate(anyNs("project", "dependencies"), doc, XPathConstants.NODE);
-            if (depsNode == null) {
-                depsNode = doc.createElement("dependencies");
-                ((Node) xPath.evaluate(anyNs("project"), doc, XPathConstants.NODE)).appendChild(depsNode);
-            }
-
-            final Node newDep = doc.createElement("dependency");
-            depsNode.appendChild(newDep);
-            doc.createElement("dependency");
-            newDep.appendChild(textElement(doc, "groupId", artifact.groupId));
-            newDep.appendChild(textElement(doc, "artifactId", oldArtifactId));
-            newDep.appendChild(textElement(doc, "version", artifact.version));
-
-            remove(xPath, anyNs("project", "build"), doc);
-            remove(xPath, anyNs("project", "profiles"), doc);
-
-            final Path testsPom = workDir.toPath().resolve(localRepoArtifact.newArtifactId + "-" + artifact.version + ".pom");
-            Files.createDirectories(testsPom.getParent());
-            try (Writer w = Files.newBufferedWriter(testsPom)) {
-                t.transform(new DOMSource(doc), new StreamResult(w));
-            } catch (IOException e) {
-                throw new RuntimeException("Could not write " + testsPom, e);
-            } catch (TransformerException e) {
-                throw new RuntimeException("Could not serialize DOM: " + testsPom, e);
-            }
-            return new InstallableArtifact(localRepoArtifact, testsPom);
-        } catch (TransformerConfigurationException | XPathExpressionException | DOMException
-                | TransformerFactoryConfigurationError | IOException e) {
-            throw new RuntimeException("Could not transform " + artifact, e);
+    /**
+     * @param fingerprint the entries to store
+     * @param path the fingerprint file to write
+     */
+    static void writeFingerprint(Map<String, String> fingerprint, Path path) {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> en : fingerprint.entrySet()) {
+            sb.append(en.getKey()).append('=').append(en.getValue()).append('\n');
+        }
+        try {
+            Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
         }
+    }
+
+    private LocalRepoArtifact createLocalRepoArtifact(Gav artifact) {
+        final ProjectBuildingRequest request = session.getProjectBuildingRequest();
+        final Path repoRoot = repositoryManager.getLocalRepositoryBasedir(request).toPath();
+
+        final String newAId = artifact.artifactId + "-rpkgtests";
+        final Path newJarPath = repoRoot.resolve(
+                repositoryManager.getPathForLocalArtifact(request, artifact.asArtifactCoordinate(newAId, "jar", null)));
+        final Path newPomPath = repoRoot.resolve(
+                repositoryManager.getPathForLocalArtifact(request, artifact.asArtifactCoordinate(newAId, "pom", null)));
+        final Path oldJarPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
+                artifact.asArtifactCoordinate(artifact.artifactId, "jar", "tests")));
+        final Path oldPomPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
+                artifact.asArtifactCoordinate(artifact.artifactId, "pom", null)));
+
+        final Path testClassIndexPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
+                artifact.asArtifactCoordinate(newAId, "txt", "test-classes")));
+
+        final String newPomFileName = newPomPath.getFileName().toString();
+        final Path fingerprintPath = newPomPath.resolveSibling(
+                newPomFileName.substring(0, newPomFileName.length() - ".pom".length()) + ".fingerprint");
+
+        final LocalRepoArtifact localRepoArtifact = new LocalRepoArtifact(artifact, newAId,
+                Files.exists(newJarPath) && Files.exists(newPomPath), newJarPath, newPomPath, oldJarPath, oldPomPath,
+                fingerprintPath, testClassIndexPath);
+        return localRepoArtifact;
+    }
 
+    private void install(LocalRepoArtifact localRepoArtifact, InstallStrategy installStrategy)
+            throws MojoExecutionException {
+        try {
+            installStrategy.install(localRepoArtifact.oldLocalRepoJarPath, localRepoArtifact.newLocalRepoJarPath,
+                    getLog(), installFallbackReported);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not copy from " + localRepoArtifact.oldLocalRepoJarPath + " to "
+                    + localRepoArtifact.newLocalRepoJarPath, e);
+        }
     }
 
-    private void remove(XPath xPath, String xPathExpression, Document doc) throws XPathExpressionException {
-        final Node node = (Node) xPath.evaluate(xPathExpression, doc, XPathConstants.NODE);
-        if (node != null) {
-            node.getParentNode().removeChild(node);
+    private void transform(LocalRepoArtifact localRepoArtifact, TransformedPomCache transformedPomCache) {
+        final PomTransformer transformer = new PomTransformer(localRepoArtifact.artifact,
+                localRepoArtifact.newArtifactId);
+        if (transformedPomCache == null) {
+            transformer.transform(localRepoArtifact.oldLocalRepoPomPath, localRepoArtifact.newLocalRepoPomPath);
+            return;
+        }
+        final String key = transformedPomCache.key(localRepoArtifact.artifact, localRepoArtifact.newArtifactId,
+                localRepoArtifact.oldLocalRepoPomPath);
+        if (!transformedPomCache.get(key, localRepoArtifact.newLocalRepoPomPath)) {
+            transformer.transform(localRepoArtifact.oldLocalRepoPomPath, localRepoArtifact.newLocalRepoPomPath);
+            transformedPomCache.put(key, localRepoArtifact.newLocalRepoPomPath);
         }
     }
 
     private void download(LocalRepoArtifact localRepoArtifact) throws MojoFailureException {
+        if (isLocal(localRepoArtifact, preferLocal || session.isOffline())) {
+            getLog().debug("Using " + localRepoArtifact.oldLocalRepoJarPath + " and "
+                    + localRepoArtifact.oldLocalRepoPomPath + " without resolving them");
+            return;
+        }
+        if (fetchOnly || resolveUnion) {
+            fetch(localRepoArtifact);
+            return;
+        }
 
         try {
             Iterable<ArtifactResult> resolvedArtifacts = dependencyResolver.resolveDependencies(
@@ -290,6 +619,47 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
 
     }
 
+    /**
+     * @param localRepoArtifact the artifact to check
+     * @param preferLocal {@code true} if locally present files should be used without resolving them, typically
+     *        because {@link #preferLocal} is set or because Maven runs in offline mode
+     * @return {@code true} if the resolution of the given {@link LocalRepoArtifact} can be skipped, i.e. if
+     *         {@code preferLocal} is {@code true}, the artifact is not a SNAPSHOT and both its {@code tests} jar and
+     *         its POM exist in the local Maven repository; {@code false} otherwise
+     */
+    static boolean isLocal(LocalRepoArtifact localRepoArtifact, boolean preferLocal) {
+        return preferLocal && !localRepoArtifact.isSnapshot()
+                && Files.isRegularFile(localRepoArtifact.oldLocalRepoJarPath)
+                && Files.isRegularFile(localRepoArtifact.oldLocalRepoPomPath);
+    }
+
+    /**
+     * Resolves just the {@code tests} jar and the POM of the given {@link LocalRepoArtifact} without their transitive
+     * dependencies.
+     *
+     * @param localRepoArtifact the artifact to fetch
+     * @throws MojoFailureException if any of the two artifacts cannot be resolved
+     */
+    void fetch(LocalRepoArtifact localRepoArtifact) throws MojoFailureException {
+        final Gav artifact = localRepoArtifact.artifact;
+        final List<ArtifactRequest> requests = Arrays.asList(
+                new ArtifactRequest().setRepositories(repositories).setArtifact(artifact.asAetherArtifact("jar", "tests")),
+                new ArtifactRequest().setRepositories(repositories).setArtifact(artifact.asAetherArtifact("pom", null)));
+        try {
+            repoSystem.resolveArtifacts(repoSession, requests);
+        } catch (ArtifactResolutionException e) {
+            final String failed = e.getResults().stream()
+                    .filter(r -> !r.isResolved())
+                    .map(r -> r.getRequest().getArtifact().toString())
+                    .collect(Collectors.joining(", "));
+            throw new MojoFailureException("Could not download " + artifact + "; unresolved: " + failed, e);
+        }
+        if (!Files.exists(localRepoArtifact.oldLocalRepoJarPath)) {
+            throw new IllegalStateException("Could not assert that " + artifact
+                    + ":jar was downloaded as " + localRepoArtifact.oldLocalRepoJarPath);
+        }
+    }
+
     public static class LocalRepoArtifact {
 
         private final Gav artifact;
@@ -298,10 +668,15 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
         private final Path newLocalRepoPomPath;
         private final Path oldLocalRepoJarPath;
         private final Path oldLocalRepoPomPath;
+        private final Path fingerprintPath;
+        private final Path testClassIndexPath;
         private final String newArtifactId;
+        /* The fingerprint computed last time in this build; used for not hashing the source files repeatedly */
+        private Map<String, String> fingerprint;
 
         public LocalRepoArtifact(Gav artifact, String newArtifactId, boolean installed, Path newLocalRepoJarPath,
-                Path newLocalRepoPomPath, Path oldLocalRepoJarPath, Path oldLocalRepoPomPath) {
+                Path newLocalRepoPomPath, Path oldLocalRepoJarPath, Path oldLocalRepoPomPath, Path fingerprintPath,
+                Path testClassIndexPath) {
             super();
             this.artifact = artifact;
             this.newArtifactId = newArtifactId;
@@ -310,17 +685,12 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
             this.newLocalRepoPomPath = newLocalRepoPomPath;
             this.oldLocalRepoJarPath = oldLocalRepoJarPath;
             this.oldLocalRepoPomPath = oldLocalRepoPomPath;
+            this.fingerprintPath = fingerprintPath;
+            this.testClassIndexPath = testClassIndexPath;
         }
-    }
 
-    public static class InstallableArtifact {
-        private final LocalRepoArtifact local;
-        private final Path sourcePomPath;
-
-        public InstallableArtifact(LocalRepoArtifact local, Path pomPath) {
-            super();
-            this.local = local;
-            this.sourcePomPath = pomPath;
+        public boolean isSnapshot() {
+            return artifact.version.endsWith("-SNAPSHOT");
         }
     }
 
@@ -16,8 +16,259 @@
  */
 package org.l2x6.rpkgtests;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
 public class RpkgUtils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /* XMLInputFactory is not guaranteed to be thread safe */
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal
+            .withInitial(() -> newXmlInputFactory(false));
+    private static final ThreadLocal<XMLInputFactory> COALESCING_XML_INPUT_FACTORY = ThreadLocal
+            .withInitial(() -> newXmlInputFactory(true));
+
+    /**
+     * @param coalescing if {@code true} adjacent character data will be reported as a single event; this is handy
+     *        for reading text content but it turns {@code CDATA} sections into plain characters
+     * @return an {@link XMLInputFactory} owned by the current thread that neither processes DTDs nor resolves external
+     *         entities
+     */
+    static XMLInputFactory xmlInputFactory(boolean coalescing) {
+        return (coalescing ? COALESCING_XML_INPUT_FACTORY : XML_INPUT_FACTORY).get();
+    }
+
+    private static XMLInputFactory newXmlInputFactory(boolean coalescing) {
+        final XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        result.setProperty(XMLInputFactory.IS_COALESCING, coalescing);
+        return result;
+    }
+
     public static String unescapePlaceholder(String escapedPlaceholder) {
         return escapedPlaceholder == null ? null : escapedPlaceholder.replace("@{", "${");
     }
+
+    /**
+     * @param path the file to hash
+     * @return the SHA-256 hash of the content of the given file as a lower case hex {@link String}
+     */
+    public static String sha256(Path path) {
+        final MessageDigest digest = newDigest("SHA-256");
+        digest(digest, path);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Feeds the content of the given file to the given {@link MessageDigest}.
+     *
+     * @param digest the {@link MessageDigest} to update
+     * @param path the file to read
+     */
+    static void digest(MessageDigest digest, Path path) {
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(path)) {
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, len);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+    }
+
+    /**
+     * Writes the given {@code content} to {@code path} unless the file exists already and has exactly the given
+     * {@code content}. Hence the last modification time of files whose content has not changed is preserved.
+     *
+     * @param path the file to write
+     * @param content the bytes to write
+     * @return {@code true} if the file was written; {@code false} if it had the given {@code content} already
+     */
+    public static boolean writeIfChanged(Path path, byte[] content) {
+        try {
+            if (Files.isRegularFile(path) && Files.size(path) == content.length
+                    && Arrays.equals(Files.readAllBytes(path), content)) {
+                return false;
+            }
+            Files.createDirectories(path.getParent());
+            Files.write(path, content);
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+
+    /**
+     * Deletes the given file or directory including all its descendants. Does nothing if {@code path} does not exist.
+     *
+     * @param path the file or directory to delete
+     */
+    public static void deleteRecursively(Path path) {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Could not delete " + path, e);
+        }
+    }
+
+    static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /**
+     * Sets the position of the given {@link ByteBuffer}. The {@link ByteBuffer} is accessed through {@link Buffer}
+     * because {@link ByteBuffer#position(int)} returns {@link ByteBuffer} since Java 9, so calling it directly on a
+     * newer JDK produces bytecode that fails with {@link NoSuchMethodError} on Java 8.
+     *
+     * @param buffer the buffer whose position should be set
+     * @param newPosition the new position
+     */
+    static void position(ByteBuffer buffer, int newPosition) {
+        ((Buffer) buffer).position(newPosition);
+    }
+
+    /**
+     * @param buffer the buffer to take the bytes from; its position and limit are not changed
+     * @param offset the absolute index of the first byte of the slice in {@code buffer}
+     * @param length the number of bytes in the slice
+     * @return a new {@link ByteBuffer} sharing the given range of {@code buffer}; see {@link #position(ByteBuffer, int)}
+     *         for why {@link Buffer} methods are not called on {@link ByteBuffer} directly
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        final ByteBuffer result = buffer.duplicate();
+        ((Buffer) result).limit(offset + length);
+        position(result, offset);
+        return result.slice();
+    }
+
+    /**
+     * Applies the given {@code function} to all {@code items} using at most {@code threads} threads.
+     * <p>
+     * The results are returned in the order of {@code items}. If some of the invocations fail, the exception thrown for
+     * the item coming first in {@code items} is rethrown with the failures of any subsequent items added as suppressed
+     * exceptions. Hence both the results and the error reporting do not depend on the order in which the threads
+     * finish.
+     *
+     * @param <T> the item type
+     * @param <R> the result type
+     * @param items the items to process
+     * @param threads the maximum number of threads to use; values less than {@code 2} cause the {@code items} to be
+     *        processed sequentially in the calling thread
+     * @param function the function to apply
+     * @return a {@link List} of results in the order of {@code items}
+     * @throws MojoExecutionException rethrown from {@code function}
+     * @throws MojoFailureException rethrown from {@code function}
+     */
+    public static <T, R> List<R> parallelMap(List<T> items, int threads, MojoFunction<T, R> function)
+            throws MojoExecutionException, MojoFailureException {
+        final List<R> result = new ArrayList<>(items.size());
+        if (threads < 2 || items.size() < 2) {
+            for (T item : items) {
+                result.add(function.apply(item));
+            }
+            return result;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, items.size()));
+        try {
+            final List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> function.apply(item)));
+            }
+            Throwable failure = null;
+            for (Future<R> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted while waiting for parallel tasks", e);
+                }
+            }
+            if (failure instanceof MojoExecutionException) {
+                throw (MojoExecutionException) failure;
+            } else if (failure instanceof MojoFailureException) {
+                throw (MojoFailureException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new MojoExecutionException(failure.getMessage(), failure);
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A {@link java.util.function.Function} that may throw the exceptions usual in mojos.
+     *
+     * @param <T> the argument type
+     * @param <R> the result type
+     */
+    @FunctionalInterface
+    public interface MojoFunction<T, R> {
+        R apply(T t) throws MojoExecutionException, MojoFailureException;
+    }
 }
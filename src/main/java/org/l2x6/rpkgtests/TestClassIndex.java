@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An index of the concrete test classes contained in a test jar.
+ * <p>
+ * The index is built by reading the central directory of the jar through a memory mapped buffer. Only the entries
+ * whose names match the default Surefire includes ({@code Test*}, {@code *Test}, {@code *Tests} and
+ * {@code *TestCase}) and which are not nested classes are decompressed, and only their class file headers are
+ * parsed to find out whether they are abstract or interfaces. No classes are loaded.
+ * <p>
+ * The index is stored in the format of Surefire's {@code includesFile}: one {@code path/to/SomeTest.java} pattern per
+ * line.
+ *
+ * @since 1.0.1
+ */
+public class TestClassIndex {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_ENUM = 0x4000;
+    private static final int NON_TEST_FLAGS = ACC_INTERFACE | ACC_ABSTRACT | ACC_SYNTHETIC | ACC_ANNOTATION | ACC_ENUM;
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String JAVA_SUFFIX = ".java";
+
+    /**
+     * @param jar the test jar to scan
+     * @return the sorted list of the fully qualified names of the concrete test classes in the given {@code jar}
+     */
+    public static List<String> scan(Path jar) {
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Cannot index " + jar + " larger than 2 GB");
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            final List<String> result = scan(buffer, jar);
+            Collections.sort(result);
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + jar, e);
+        }
+    }
+
+    static List<String> scan(ByteBuffer zip, Path jar) {
+        final int eocd = findEndOfCentralDirectory(zip);
+        if (eocd < 0) {
+            throw new IllegalStateException("Could not find the end of the central directory in " + jar);
+        }
+        final int entryCount = Short.toUnsignedInt(zip.getShort(eocd + 10));
+        final long cenOffset = Integer.toUnsignedLong(zip.getInt(eocd + 16));
+        if (entryCount == 0xffff || cenOffset == 0xffffffffL) {
+            throw new IllegalStateException("ZIP64 archives are not supported: " + jar);
+        }
+        final List<String> result = new ArrayList<>();
+        int pos = (int) cenOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (zip.getInt(pos) != CEN_SIGNATURE) {
+                throw new IllegalStateException("Invalid central directory entry at " + pos + " in " + jar);
+            }
+            final int method = Short.toUnsignedInt(zip.getShort(pos + 10));
+            final int compressedSize = zip.getInt(pos + 20);
+            final int uncompressedSize = zip.getInt(pos + 24);
+            final int nameLength = Short.toUnsignedInt(zip.getShort(pos + 28));
+            final int extraLength = Short.toUnsignedInt(zip.getShort(pos + 30));
+            final int commentLength = Short.toUnsignedInt(zip.getShort(pos + 32));
+            final int localHeaderOffset = zip.getInt(pos + 42);
+            final String name = utf8(zip, pos + CEN_SIZE, nameLength);
+            pos += CEN_SIZE + nameLength + extraLength + commentLength;
+
+            if (isTestClassName(name)) {
+                final ByteBuffer classFile = entryData(zip, localHeaderOffset, method, compressedSize,
+                        uncompressedSize, name, jar);
+                final ClassFileInfo classFileInfo = ClassFileInfo.parse(classFile);
+                if (classFileInfo != null && (classFileInfo.getAccessFlags() & NON_TEST_FLAGS) == 0) {
+                    result.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param name a zip entry name
+     * @return {@code true} if the given {@code name} is a top level class matched by the default Surefire includes
+     */
+    static boolean isTestClassName(String name) {
+        if (!name.endsWith(CLASS_SUFFIX) || name.indexOf('$') >= 0) {
+            return false;
+        }
+        final String simpleName = name.substring(name.lastIndexOf('/') + 1, name.length() - CLASS_SUFFIX.length());
+        return simpleName.startsWith("Test") || simpleName.endsWith("Test") || simpleName.endsWith("Tests")
+                || simpleName.endsWith("TestCase");
+    }
+
+    static ByteBuffer entryData(ByteBuffer zip, int localHeaderOffset, int method, int compressedSize,
+            int uncompressedSize, String name, Path jar) {
+        if (zip.getInt(localHeaderOffset) != LOC_SIGNATURE) {
+            throw new IllegalStateException("Invalid local header of " + name + " in " + jar);
+        }
+        final int dataOffset = localHeaderOffset + LOC_SIZE + Short.toUnsignedInt(zip.getShort(localHeaderOffset + 26))
+                + Short.toUnsignedInt(zip.getShort(localHeaderOffset + 28));
+        final ByteBuffer data = RpkgUtils.slice(zip, dataOffset, compressedSize);
+        switch (method) {
+            case METHOD_STORED:
+                return data;
+            case METHOD_DEFLATED:
+                final byte[] input = new byte[compressedSize];
+                data.get(input);
+                final byte[] output = new byte[uncompressedSize];
+                final Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(input);
+                    int len = 0;
+                    while (len < output.length && !inflater.finished()) {
+                        final int n = inflater.inflate(output, len, output.length - len);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        len += n;
+                    }
+                    if (len != uncompressedSize) {
+                        /* A truncated or corrupt entry - better fail than pass a zero padded class file further */
+                        throw new RuntimeException("Could not inflate " + name + " in " + jar + ": expected "
+                                + uncompressedSize + " bytes, got " + len);
+                    }
+                } catch (DataFormatException e) {
+                    throw new RuntimeException("Could not inflate " + name + " in " + jar, e);
+                } finally {
+                    inflater.end();
+                }
+                return ByteBuffer.wrap(output);
+            default:
+                throw new IllegalStateException("Unsupported compression method " + method + " of " + name + " in " + jar);
+        }
+    }
+
+    static int findEndOfCentralDirectory(ByteBuffer zip) {
+        final int min = Math.max(0, zip.limit() - EOCD_SIZE - MAX_COMMENT_SIZE);
+        for (int pos = zip.limit() - EOCD_SIZE; pos >= min; pos--) {
+            if (zip.getInt(pos) == EOCD_SIGNATURE) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    static String utf8(ByteBuffer buffer, int offset, int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the given class names to the given file in the format of Surefire's {@code includesFile}.
+     *
+     * @param classNames the fully qualified class names to write
+     * @param path the file to write
+     */
+    public static void write(List<String> classNames, Path path) {
+        final StringBuilder sb = new StringBuilder();
+        for (String className : classNames) {
+            sb.append(className.replace('.', '/')).append(JAVA_SUFFIX).append('\n');
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * The cost of running the tests of individual test jars, typically the wall time in seconds. The costs are stored in
+ * a simple text format having one {@code groupId:artifactId cost} pair per line, optionally followed by the costs of
+ * the individual test classes in the {@code groupId:artifactId/className cost} form. Empty lines and lines starting
+ * with {@code #} are ignored:
+ *
+ * <pre>
+ * # rpkgtests test timings
+ * org.myorg:my-artifact 12.500
+ * org.myorg:my-artifact/org.myorg.FirstTest 10.000
+ * org.myorg:my-artifact/org.myorg.SecondTest 2.500
+ * org.myorg:my-other-artifact 3.125
+ * </pre>
+ *
+ * @since 1.0.1
+ */
+public class TestTimings {
+    private static final char CLASS_SEPARATOR = '/';
+    private static final String HEADER = "# rpkgtests test timings: groupId:artifactId seconds";
+
+    /**
+     * @param path the file to read
+     * @return new {@link TestTimings} read from the given file
+     */
+    public static TestTimings read(Path path) {
+        final Map<String, Double> costs = new TreeMap<>();
+        try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = r.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final int space = line.lastIndexOf(' ');
+                if (space <= 0) {
+                    throw new IllegalStateException("Expected 'groupId:artifactId cost' at " + path + ":" + lineNumber
+                            + "; found '" + line + "'");
+                }
+                final String key = line.substring(0, space).trim();
+                try {
+                    costs.put(key, Double.valueOf(line.substring(space + 1)));
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException("Could not parse cost at " + path + ":" + lineNumber, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+        return new TestTimings(costs);
+    }
+
+    private final Map<String, Double> costs;
+
+    /**
+     * @param costs the costs by {@code groupId:artifactId}
+     */
+    public TestTimings(Map<String, Double> costs) {
+        this.costs = Collections.unmodifiableMap(new TreeMap<>(costs));
+    }
+
+    /**
+     * @param gav the test jar to look up
+     * @return the cost of the given test jar or {@code null} if not known
+     */
+    public Double get(Gav gav) {
+        return costs.get(key(gav));
+    }
+
+    /**
+     * @return {@code true} if there are no test jar costs; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return costs.keySet().stream().allMatch(TestTimings::isClassKey);
+    }
+
+    /**
+     * @return the average of all test jar costs or {@code 0} if there are no test jar costs
+     */
+    public double average() {
+        return costs.entrySet().stream()
+                .filter(en -> !isClassKey(en.getKey()))
+                .mapToDouble(Entry::getValue)
+                .average()
+                .orElse(0);
+    }
+
+    /**
+     * @return an unmodifiable {@link Map} of costs by {@code groupId:artifactId} and by
+     *         {@code groupId:artifactId/className}
+     */
+    public Map<String, Double> getCosts() {
+        return costs;
+    }
+
+    /**
+     * Writes the costs to the given file sorted by {@code groupId:artifactId}.
+     *
+     * @param path the file to write
+     */
+    public void write(Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create " + path.getParent(), e);
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write(HEADER);
+            w.write('\n');
+            for (Entry<String, Double> en : costs.entrySet()) {
+                w.write(en.getKey());
+                w.write(' ');
+                w.write(String.format(Locale.ROOT, "%.3f", en.getValue()));
+                w.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+
+    /**
+     * @param gav the {@link Gav} to create a key for
+     * @return the key under which the cost of the given {@link Gav} is stored
+     */
+    public static String key(Gav gav) {
+        return gav.getGroupId() + ":" + gav.getArtifactId();
+    }
+
+    /**
+     * @param gav the test jar containing the given test class
+     * @param className the fully qualified name of a test class
+     * @return the key under which the cost of the given test class is stored
+     */
+    public static String key(Gav gav, String className) {
+        return key(gav) + CLASS_SEPARATOR + className;
+    }
+
+    static boolean isClassKey(String key) {
+        return key.indexOf(CLASS_SEPARATOR) >= 0;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A cache of POMs transformed by {@link PomTransformer} that can be shared by all builds running on a machine.
+ * <p>
+ * The entries are keyed by a hash of the content of the source POM and of the transformation settings, so that builds
+ * using different local repositories can share them. New entries are first written to a temporary file and then
+ * atomically moved to their final location where supported, so that concurrent builds never see partially written
+ * entries. The last modification time of an entry is updated on every hit and the least recently used entries are
+ * removed by {@link #evict(Log)} once the total size of the cache exceeds the given limit.
+ *
+ * @since 1.0.1
+ */
+public class TransformedPomCache {
+    private static final String ENTRY_SUFFIX = ".pom";
+    private static final String TMP_SUFFIX = ".tmp";
+    /** Temporary files older than this were most probably left behind by a killed build */
+    private static final long STALE_TMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path dir;
+    private final long maxSize;
+
+    /**
+     * @param dir the root directory of the cache
+     * @param maxSize the maximum total size of the cache entries in bytes
+     */
+    public TransformedPomCache(Path dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param artifact the original artifact
+     * @param newArtifactId the artifactId of the transformed POM
+     * @param sourcePom the POM to transform
+     * @return the key under which the result of the transformation of the given {@code sourcePom} is stored
+     */
+    public String key(Gav artifact, String newArtifactId, Path sourcePom) {
+        final String input = PomTransformer.FORMAT_VERSION + "\n" + artifact + "\n" + newArtifactId + "\n"
+                + RpkgUtils.sha256(sourcePom) + "\n";
+        final MessageDigest digest = RpkgUtils.newDigest("SHA-256");
+        return RpkgUtils.toHex(digest.digest(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Copies the entry stored under the given {@code key} to {@code destination} if the entry exists.
+     *
+     * @param key the key to look up
+     * @param destination where to copy the cached POM
+     * @return {@code true} if the entry was found and copied; {@code false} otherwise
+     */
+    public boolean get(String key, Path destination) {
+        final Path entry = entryPath(key);
+        try {
+            Files.createDirectories(destination.getParent());
+            Files.copy(entry, destination, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not copy " + entry + " to " + destination, e);
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            /* Evicted by a concurrent build in the meantime - never mind */
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of the given {@code transformedPom} under the given {@code key}.
+     *
+     * @param key the key to store the entry under
+     * @param transformedPom the file to store
+     */
+    public void put(String key, Path transformedPom) {
+        final Path entry = entryPath(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            tmp = Files.createTempFile(entry.getParent(), key, TMP_SUFFIX);
+            Files.copy(transformedPom, tmp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                try {
+                    Files.move(tmp, entry);
+                } catch (FileAlreadyExistsException e1) {
+                    /* A concurrent build has stored the same content in the meantime */
+                }
+            } catch (FileAlreadyExistsException e) {
+                /* A concurrent build has stored the same content in the meantime */
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store " + transformedPom + " in " + entry, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    /* ignore */
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the total size of the cache does not exceed the limit passed
+     * to the constructor. Entries removed by concurrent builds in the meantime are tolerated. Files that cannot be
+     * deleted are reported as warnings and skipped.
+     *
+     * @param log for reporting the number of removed entries and the failed deletions
+     */
+    public void evict(Log log) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        final List<Entry> entries = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    final String fileName = file.getFileName().toString();
+                    final long lastModified = attrs.lastModifiedTime().toMillis();
+                    if (fileName.endsWith(ENTRY_SUFFIX)) {
+                        entries.add(new Entry(file, attrs.size(), lastModified));
+                    } else if (fileName.endsWith(TMP_SUFFIX) && now - lastModified > STALE_TMP_MILLIS) {
+                        try {
+                            Files.deleteIfExists(file);
+                        } catch (IOException e) {
+                            log.warn("Could not delete stale temporary file " + file + ": " + e.getMessage());
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    if (exc instanceof NoSuchFileException) {
+                        /* Removed by a concurrent build */
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw exc;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Could not walk " + dir, e);
+        }
+        long totalSize = entries.stream().mapToLong(e -> e.size).sum();
+        if (totalSize <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong((Entry e) -> e.lastModified).thenComparing(e -> e.path));
+        int removed = 0;
+        for (Entry entry : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.path);
+            } catch (IOException e) {
+                log.warn("Could not evict " + entry.path + " from the transformed POM cache: " + e.getMessage());
+                continue;
+            }
+            totalSize -= entry.size;
+            removed++;
+        }
+        log.debug("Evicted " + removed + " least recently used entries from " + dir);
+    }
+
+    Path entryPath(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    static class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+
+        Entry(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AbstractTestJarsConsumerMojoTest {
+    private static final String CATALOG = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" //
+            + "<testArtifacts>\n" //
+            + "    <testArtifact>\n" //
+            + "        <groupId>org.foo</groupId>\n" //
+            + "        <artifactId>foo</artifactId>\n" //
+            + "    </testArtifact>\n" //
+            + "</testArtifacts>\n";
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void catalogCache() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path catalog = Files.write(dir.resolve("test-jars.xml"), CATALOG.getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger resolutions = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final RepositorySystem repoSystem = repoSystem(catalog, resolutions, failures);
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+        final Gav catalogGav = new Gav("org.foo", "catalog", "1.0", "${foo.version}");
+
+        final Set<Gav> expected = new TreeSet<>(
+                Collections.singleton(new Gav("org.foo", "foo", "${foo.version}")));
+        Assert.assertEquals(expected, mojo(repoSystem, session, catalogGav).getCatalogTestJars());
+        Assert.assertEquals(1, resolutions.get());
+        Assert.assertEquals("hit in a new execution sharing the session", expected,
+                mojo(repoSystem, session, catalogGav).getCatalogTestJars());
+        Assert.assertEquals(1, resolutions.get());
+
+        mojo(repoSystem, new DefaultRepositorySystemSession(), catalogGav).getCatalogTestJars();
+        Assert.assertEquals("a new session starts with an empty cache", 2, resolutions.get());
+
+        final TestMojo otherCharset = mojo(repoSystem, session, catalogGav);
+        otherCharset.setEncoding("ISO-8859-1");
+        otherCharset.getCatalogTestJars();
+        Assert.assertEquals("different charset", 3, resolutions.get());
+
+        final Set<Gav> otherPlaceholder = mojo(repoSystem, session, new Gav("org.foo", "catalog", "1.0", "1.0"))
+                .getCatalogTestJars();
+        Assert.assertEquals("different version placeholder", 4, resolutions.get());
+        Assert.assertEquals(new TreeSet<>(Collections.singleton(new Gav("org.foo", "foo", "1.0"))),
+                otherPlaceholder);
+
+        final TestMojo otherRepos = mojo(repoSystem, session, catalogGav);
+        otherRepos.repositories = Arrays.asList(
+                new RemoteRepository.Builder("other", "default", "https://other.example.org/").build());
+        otherRepos.getCatalogTestJars();
+        Assert.assertEquals("different repositories", 5, resolutions.get());
+    }
+
+    @Test
+    public void catalogCacheFailure() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path catalog = Files.write(dir.resolve("test-jars.xml"), CATALOG.getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger resolutions = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger(1);
+        final RepositorySystem repoSystem = repoSystem(catalog, resolutions, failures);
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+        final Gav catalogGav = new Gav("org.foo", "catalog", "1.0");
+        try {
+            mojo(repoSystem, session, catalogGav).getCatalogTestJars();
+            Assert.fail("RuntimeException expected");
+        } catch (RuntimeException expected) {
+            Assert.assertEquals("Resolution failed", expected.getMessage());
+        }
+        Assert.assertEquals("failures are not cached", 1,
+                mojo(repoSystem, session, catalogGav).getCatalogTestJars().size());
+        Assert.assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void catalogResolutionFailure() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path catalog = Files.write(dir.resolve("test-jars.xml"), CATALOG.getBytes(StandardCharsets.UTF_8));
+        /* Only the catalogs of org.foo can be resolved */
+        final RepositorySystem repoSystem = (RepositorySystem) Proxy.newProxyInstance(
+                AbstractTestJarsConsumerMojoTest.class.getClassLoader(), new Class<?>[] { RepositorySystem.class },
+                (proxy, method, args) -> {
+                    @SuppressWarnings("unchecked")
+                    final Collection<ArtifactRequest> requests = (Collection<ArtifactRequest>) args[1];
+                    final List<ArtifactResult> results = new ArrayList<>();
+                    for (ArtifactRequest request : requests) {
+                        final ArtifactResult result = new ArtifactResult(request);
+                        if (request.getArtifact().getGroupId().equals("org.foo")) {
+                            result.setArtifact(request.getArtifact().setFile(catalog.toFile()));
+                        }
+                        results.add(result);
+                    }
+                    throw new ArtifactResolutionException(results);
+                });
+        final TestMojo mojo = mojo(repoSystem, new DefaultRepositorySystemSession(),
+                new Gav("org.bar", "bar-catalog", "1.0"), new Gav("org.foo", "catalog", "1.0"),
+                new Gav("org.baz", "baz-catalog", "2.0"));
+        try {
+            mojo.getCatalogTestJars();
+            Assert.fail("RuntimeException expected");
+        } catch (RuntimeException expected) {
+            Assert.assertEquals("Could not resolve org.bar:bar-catalog:xml:1.0, org.baz:baz-catalog:xml:2.0",
+                    expected.getMessage());
+            Assert.assertTrue(expected.getCause() instanceof ArtifactResolutionException);
+        }
+    }
+
+    static TestMojo mojo(RepositorySystem repoSystem, RepositorySystemSession session, Gav... catalogs) {
+        final TestMojo mojo = new TestMojo();
+        mojo.repoSystem = repoSystem;
+        mojo.repoSession = session;
+        mojo.repositories = Arrays.asList(
+                new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2/").build());
+        mojo.testJarXmls = Arrays.asList(catalogs);
+        mojo.threads = 1;
+        return mojo;
+    }
+
+    /**
+     * @param catalog the file to return for every {@link ArtifactRequest}
+     * @param resolutions incremented on every invocation of {@link RepositorySystem#resolveArtifacts}
+     * @param failures the number of invocations that should fail before the resolution starts to succeed
+     * @return a {@link RepositorySystem} supporting only {@link RepositorySystem#resolveArtifacts}
+     */
+    static RepositorySystem repoSystem(Path catalog, AtomicInteger resolutions, AtomicInteger failures) {
+        return (RepositorySystem) Proxy.newProxyInstance(AbstractTestJarsConsumerMojoTest.class.getClassLoader(),
+                new Class<?>[] { RepositorySystem.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("resolveArtifacts")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    resolutions.incrementAndGet();
+                    if (failures.getAndDecrement() > 0) {
+                        throw new IllegalStateException("Resolution failed");
+                    }
+                    @SuppressWarnings("unchecked")
+                    final Collection<ArtifactRequest> requests = (Collection<ArtifactRequest>) args[1];
+                    final List<ArtifactResult> results = new ArrayList<>();
+                    for (ArtifactRequest request : requests) {
+                        results.add(new ArtifactResult(request)
+                                .setArtifact(request.getArtifact().setFile(catalog.toFile())));
+                    }
+                    return results;
+                });
+    }
+
+    static class TestMojo extends AbstractTestJarsConsumerMojo {
+        @Override
+        public void execute() throws MojoExecutionException, MojoFailureException {
+        }
+    }
+
+}
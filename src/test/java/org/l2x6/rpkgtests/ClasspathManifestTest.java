@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathManifestTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void writeRead() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path file = dir.resolve("module.txt");
+        Assert.assertNull(ClasspathManifest.read(file));
+
+        final Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("org/foo/b/1/b-1.jar", "bb");
+        entries.put("org/foo/a/1/a-1.jar", "aa");
+        Assert.assertTrue(new ClasspathManifest("k1", entries).write(file));
+        Assert.assertEquals("# key k1\n" //
+                + "org/foo/a/1/a-1.jar aa\n" //
+                + "org/foo/b/1/b-1.jar bb\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Assert.assertFalse(new ClasspathManifest("k1", entries).write(file));
+
+        final ClasspathManifest manifest = ClasspathManifest.read(file);
+        Assert.assertEquals("k1", manifest.getKey());
+        Assert.assertEquals(entries, manifest.getEntries());
+    }
+
+    @Test
+    public void isComplete() throws IOException {
+        final Path localRepo = tmp.getRoot().toPath();
+        final Path jar = localRepo.resolve("org/foo/a/1/a-1.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, "abc".getBytes(StandardCharsets.UTF_8));
+
+        final Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("org/foo/a/1/a-1.jar", "3");
+        Assert.assertTrue(new ClasspathManifest("k1", entries).isComplete(localRepo));
+
+        Files.write(jar, "abcd".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse("size changed", new ClasspathManifest("k1", entries).isComplete(localRepo));
+
+        entries.put("org/foo/a/1/a-1.jar", "4");
+        entries.put("org/foo/b/1/b-1.jar", "4");
+        Assert.assertFalse("missing", new ClasspathManifest("k1", entries).isComplete(localRepo));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.l2x6.rpkgtests.InstallStrategyTest.RecordingLog;
+
+public class CollectTestTimingsMojoTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void collect() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(dir.resolve("TEST-org.foo.FirstTest.xml"),
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<testsuite name=\"org.foo.FirstTest\" time=\"1,001.5\" tests=\"1\">\n"
+                        + "  <testcase name=\"a\" classname=\"org.foo.FirstTest\" time=\"1001.5\"/>\n"
+                        + "</testsuite>\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("TEST-org.foo.SecondTest.xml"),
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<testsuite name=\"org.foo.SecondTest\" tests=\"2\">\n"
+                        + "  <testcase name=\"a\" classname=\"org.foo.SecondTest\" time=\"0.25\"/>\n"
+                        + "  <testcase name=\"b\" classname=\"org.foo.SecondTest\" time=\"0.5\">\n"
+                        + "    <system-out>out</system-out>\n"
+                        + "  </testcase>\n"
+                        + "</testsuite>\n").getBytes(StandardCharsets.UTF_8));
+        /* Written with a comma as the decimal separator */
+        Files.write(dir.resolve("TEST-org.foo.ThirdTest.xml"),
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<testsuite name=\"org.foo.ThirdTest\" time=\"1,234\" tests=\"1\">\n"
+                        + "  <testcase name=\"a\" classname=\"org.foo.ThirdTest\" time=\"1,234\"/>\n"
+                        + "</testsuite>\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("org.foo.FirstTest.txt"), new byte[0]);
+
+        final Gav gav = new Gav("org.foo", "foo", "1.0");
+        final RecordingLog log = new RecordingLog();
+        final Map<String, Double> actual = CollectTestTimingsMojo.collect(gav, dir, log);
+        Assert.assertEquals(Arrays.asList("Ignoring " + dir.resolve("TEST-org.foo.ThirdTest.xml")
+                + ": Could not parse the time '1,234'"), log.warnings);
+        Assert.assertEquals(3, actual.size());
+        Assert.assertEquals(1001.5, actual.get("org.foo:foo/org.foo.FirstTest"), 0.0001);
+        Assert.assertEquals(0.75, actual.get("org.foo:foo/org.foo.SecondTest"), 0.0001);
+        Assert.assertEquals(1002.25, actual.get("org.foo:foo"), 0.0001);
+
+        final Path timingsPath = dir.resolve("timings.txt");
+        new TestTimings(actual).write(timingsPath);
+        final TestTimings timings = TestTimings.read(timingsPath);
+        Assert.assertEquals(1002.25, timings.get(gav), 0.0001);
+        Assert.assertEquals(1002.25, timings.average(), 0.0001);
+    }
+
+    @Test
+    public void parseTime() {
+        Assert.assertEquals(12.0, CollectTestTimingsMojo.parseTime("12"), 0.0001);
+        Assert.assertEquals(0.5, CollectTestTimingsMojo.parseTime(" 0.5 "), 0.0001);
+        Assert.assertEquals(1234567.5, CollectTestTimingsMojo.parseTime("1,234,567.5"), 0.0001);
+        for (String time : new String[] { "1,234", "1,5", "1.234,5", "12,34.5", "", "-1", "NaN" }) {
+            try {
+                CollectTestTimingsMojo.parseTime(time);
+                Assert.fail("NumberFormatException expected for '" + time + "'");
+            } catch (NumberFormatException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GasTest {
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" //
+            + "<testArtifacts>\n" //
+            + "    <testArtifact>\n" //
+            + "        <groupId>org.foo</groupId>\n" //
+            + "        <artifactId>foo</artifactId>\n" //
+            + "        <version>1.2.3</version>\n" //
+            + "    </testArtifact>\n" //
+            + "    <testArtifact>\n" //
+            + "        <groupId>org.bar</groupId>\n" //
+            + "        <artifactId>bar&amp;baz</artifactId>\n" //
+            + "    </testArtifact>\n" //
+            + "</testArtifacts>\n";
+
+    @Test
+    public void read() {
+        final Gas gas = Gas.read(new StringReader(XML), "test");
+        Assert.assertEquals(Arrays.asList(new Gav("org.foo", "foo", "1.2.3"), new Gav("org.bar", "bar&baz", null)),
+                gas.getGavs());
+    }
+
+    @Test
+    public void write() throws IOException {
+        final StringWriter w = new StringWriter();
+        Gas.write(Arrays.asList(new Gav("org.foo", "foo", "1.2.3"), new Gav("org.bar", "bar&baz", null)), w, "UTF-8");
+        Assert.assertEquals(XML, w.toString());
+    }
+
+    @Test
+    public void writeEmpty() throws IOException {
+        final StringWriter w = new StringWriter();
+        Gas.write(Collections.emptyList(), w, "UTF-8");
+        Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<testArtifacts/>\n",
+                w.toString());
+        Assert.assertEquals(Collections.emptyList(), Gas.read(new StringReader(w.toString()), "test").getGavs());
+    }
+}
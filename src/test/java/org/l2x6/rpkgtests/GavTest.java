@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GavTest {
+    private static final String eol = "\n";
+    private static final String indent = "  ";
+
+    @Test
+    public void scan() throws XMLStreamException {
+        Assert.assertEquals(new Gav("org.foo", "foo", "1.2.3"), Gav.scan(new StringReader(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + eol //
+                        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">" + eol //
+                        + indent + "<modelVersion>4.0.0</modelVersion>" + eol //
+                        + indent + "<parent>" + eol //
+                        + indent + indent + "<groupId>org.parent</groupId>" + eol //
+                        + indent + indent + "<artifactId>foo-parent</artifactId>" + eol //
+                        + indent + indent + "<version>1.0.0</version>" + eol //
+                        + indent + "</parent>" + eol //
+                        + indent + "<groupId>org.foo</groupId>" + eol //
+                        + indent + "<artifactId>foo</artifactId>" + eol //
+                        + indent + "<version>1.2.3</version>" + eol //
+                        + indent + "<dependencies>" + eol //
+                        + "</project>")));
+    }
+
+    @Test
+    public void scanParent() throws XMLStreamException {
+        Assert.assertEquals(new Gav("org.parent", "foo", "1.0.0"), Gav.scan(new StringReader(
+                "<project>" + eol //
+                        + indent + "<parent>" + eol //
+                        + indent + indent + "<groupId>org.parent</groupId>" + eol //
+                        + indent + indent + "<artifactId>foo-parent</artifactId>" + eol //
+                        + indent + indent + "<version>1.0.0</version>" + eol //
+                        + indent + "</parent>" + eol //
+                        + indent + "<artifactId>foo</artifactId>" + eol //
+                        + indent + "<name>Foo</name>" + eol //
+                        + indent + "<properties>" + eol //
+                        + indent + indent + "<version>2.0.0</version>" + eol //
+                        + indent + "</properties>" + eol //
+                        + "</project>")));
+    }
+
+    @Test
+    public void scanCoordinatesAfterBody() throws XMLStreamException {
+        Assert.assertEquals(new Gav("org.foo", "foo", "1.2.3"), Gav.scan(new StringReader(
+                "<project>" + eol //
+                        + indent + "<parent>" + eol //
+                        + indent + indent + "<groupId>org.parent</groupId>" + eol //
+                        + indent + indent + "<artifactId>foo-parent</artifactId>" + eol //
+                        + indent + indent + "<version>1.0.0</version>" + eol //
+                        + indent + "</parent>" + eol //
+                        + indent + "<properties>" + eol //
+                        + indent + indent + "<version>2.0.0</version>" + eol //
+                        + indent + "</properties>" + eol //
+                        + indent + "<dependencies>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>org.bar</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>bar</artifactId>" + eol //
+                        + indent + indent + indent + "<version>3.0.0</version>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + "</dependencies>" + eol //
+                        + indent + "<version>1.2.3</version>" + eol //
+                        + indent + "<artifactId>foo</artifactId>" + eol //
+                        + indent + "<groupId>org.foo</groupId>" + eol //
+                        + "</project>")));
+    }
+
+    @Test
+    public void scanIncomplete() throws XMLStreamException {
+        Assert.assertNull(Gav.scan(new StringReader(
+                "<project>" + eol //
+                        + indent + "<artifactId>foo</artifactId>" + eol //
+                        + "</project>")));
+    }
+}
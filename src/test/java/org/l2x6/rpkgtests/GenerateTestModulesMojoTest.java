@@ -16,18 +16,42 @@
  */
 package org.l2x6.rpkgtests;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.l2x6.rpkgtests.GenerateTestModulesMojo.Replacers;
+import org.l2x6.rpkgtests.GenerateTestModulesMojo.TemplateParams;
 
 public class GenerateTestModulesMojoTest {
     private static final String eol = "\n";
     private static final String indent = "  ";
 
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void addModules() {
         assertAddModules(
@@ -107,6 +131,169 @@ public class GenerateTestModulesMojoTest {
 
     }
 
+    @Test
+    public void getManagedModules() {
+        Assert.assertEquals(Collections.emptyList(), GenerateTestModulesMojo.getManagedModules("<project />"));
+        Assert.assertEquals(Arrays.asList("foo1", "foo2"), GenerateTestModulesMojo.getManagedModules(
+                "<project>" + eol //
+                        + indent + "<modules>" + eol //
+                        + indent + indent + "<module>old-m1</module>" + eol //
+                        + indent + indent + "<!-- START: modules generated by rpkgtests-maven-plugin -->" + eol //
+                        + indent + indent + "<module>foo1</module>" + eol //
+                        + indent + indent + "<module>foo2</module>" + eol //
+                        + indent + indent + "<!-- END: modules generated by rpkgtests-maven-plugin -->" + eol //
+                        + indent + indent + "<module>old-m2</module>" + eol //
+                        + indent + "</modules>" + eol //
+                        + "</project>"));
+    }
+
+    @Test
+    public void assignShards() {
+        final Gav a = new Gav("org.foo", "a", "1");
+        final Gav b = new Gav("org.foo", "b", "1");
+        final Gav c = new Gav("org.foo", "c", "1");
+        final Gav d = new Gav("org.foo", "d", "1");
+        final Map<String, Double> costs = new HashMap<>();
+        costs.put("org.foo:a", 10.0);
+        costs.put("org.foo:b", 6.0);
+        costs.put("org.foo:c", 5.0);
+        /* d has no cost and thus gets the average 7.0 */
+        final List<List<Gav>> shards = GenerateTestModulesMojo.assignShards(Arrays.asList(a, b, c, d), 2,
+                new TestTimings(costs));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(a, c), Arrays.asList(d, b)), shards);
+
+        /* Stable hashing without timings: every Gav is in exactly one shard and the result is reproducible */
+        final List<List<Gav>> hashed = GenerateTestModulesMojo.assignShards(Arrays.asList(a, b, c, d), 3, null);
+        Assert.assertEquals(4, hashed.stream().mapToInt(List::size).sum());
+        Assert.assertEquals(hashed, GenerateTestModulesMojo.assignShards(Arrays.asList(a, b, c, d), 3, null));
+    }
+
+    @Test
+    public void groupTestJars() {
+        final Gav a = new Gav("org.foo", "a", "1");
+        final Gav b = new Gav("org.foo", "b", "1");
+        final Gav c = new Gav("org.foo", "c", "1");
+        final Gav d = new Gav("org.foo", "d", "2");
+        final Gav e = new Gav("org.bar", "e", "1");
+        final Set<Gav> gavs = new TreeSet<>(Arrays.asList(a, b, c, d, e));
+        Assert.assertEquals(
+                Arrays.asList(Arrays.asList(e), Arrays.asList(a, b), Arrays.asList(c), Arrays.asList(d)),
+                GenerateTestModulesMojo.groupTestJars(gavs, 2));
+        Assert.assertEquals(5, GenerateTestModulesMojo.groupTestJars(gavs, 1).size());
+
+        final Replacers replacers = Replacers.parse(null);
+        Assert.assertEquals("a-group", GenerateTestModulesMojo.moduleName(replacers, Arrays.asList(a, b)));
+        Assert.assertEquals("c", GenerateTestModulesMojo.moduleName(replacers, Arrays.asList(c)));
+    }
+
+    @Test
+    public void cleanByManifest() throws Exception {
+        final Path dir = tmp.newFolder("parent").toPath();
+        final Path parentPom = touch(dir.resolve("pom.xml"));
+        final Path manifest = dir.resolve(GenerateTestModulesMojo.DEFAULT_MANIFEST_FILE_NAME);
+        Files.write(manifest, "foo/\nbaz/\nrpkgtests/pom.xml\n../outside/\n".getBytes("UTF-8"));
+        final Path fooPom = touch(dir.resolve("foo/pom.xml"));
+        final Path fooTarget = touch(dir.resolve("foo/target/classes/Foo.class"));
+        final Path fooKeep = touch(dir.resolve("foo/src/keep.txt"));
+        final Path bazKeep = touch(dir.resolve("baz/keep.txt"));
+        final Path barPom = touch(dir.resolve("bar/pom.xml"));
+        final Path rpkgPom = touch(dir.resolve("rpkgtests/pom.xml"));
+        final Path outside = touch(dir.resolve("../outside/pom.xml"));
+
+        final GenerateTestModulesMojo mojo = new GenerateTestModulesMojo();
+        mojo.setTestModulesParentDir(dir.toFile());
+        mojo.threads = 2;
+        mojo.cleanByManifest(manifest, matchers("**"), matchers(".**", "pom.xml", "*/src/**", "*/keep.txt"));
+
+        Assert.assertTrue(Files.exists(parentPom));
+        Assert.assertTrue(Files.exists(manifest));
+        Assert.assertFalse(Files.exists(fooPom));
+        Assert.assertFalse(Files.exists(dir.resolve("foo/target")));
+        Assert.assertTrue("file level excludes must be honoured", Files.exists(fooKeep));
+        Assert.assertTrue("file level excludes must be honoured", Files.exists(bazKeep));
+        Assert.assertTrue("not listed in the manifest", Files.exists(barPom));
+        Assert.assertFalse(Files.exists(rpkgPom));
+        Assert.assertFalse(Files.exists(dir.resolve("rpkgtests")));
+        Assert.assertTrue("outside of testModulesParentDir", Files.exists(outside));
+    }
+
+    @Test
+    public void configurationCache() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path template = dir.resolve("templates/run-tests-module-pom.xml");
+        Files.createDirectories(template.getParent());
+        Files.write(template, "<artifactId>[=testJar.artifactId]</artifactId>".getBytes(StandardCharsets.UTF_8));
+        final Configuration cfg = GenerateTestModulesMojo.getConfiguration(dir, "file:templates",
+                StandardCharsets.UTF_8);
+        /*
+         * Nothing session scoped is involved, so the next build, e.g. in the same Maven daemon, resolving the same
+         * templates reuses the parsed ones
+         */
+        Assert.assertSame("next session", cfg, GenerateTestModulesMojo.getConfiguration(dir,
+                "file:templates", StandardCharsets.UTF_8));
+        Assert.assertNotSame("different charset", cfg, GenerateTestModulesMojo.getConfiguration(dir,
+                "file:templates", StandardCharsets.ISO_8859_1));
+
+        final Path dest = dir.resolve("out/pom.xml");
+        GenerateTestModulesMojo.evalTemplate(cfg.getTemplate("run-tests-module-pom.xml"), dest,
+                StandardCharsets.UTF_8, params(new Gav("org.foo", "foo", "1.0")), false);
+        Assert.assertEquals("<artifactId>foo</artifactId>", read(dest));
+
+        /* A template changed within the session is picked up */
+        Files.write(template, "<groupId>[=testJar.groupId]</groupId>".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(template,
+                FileTime.fromMillis(Files.getLastModifiedTime(template).toMillis() + 10000));
+        GenerateTestModulesMojo.evalTemplate(cfg.getTemplate("run-tests-module-pom.xml"), dest,
+                StandardCharsets.UTF_8, params(new Gav("org.foo", "foo", "1.0")), false);
+        Assert.assertEquals("<groupId>org.foo</groupId>", read(dest));
+    }
+
+    @Test
+    public void parallelRender() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Template template = GenerateTestModulesMojo.getConfiguration(dir,
+                GenerateTestModulesMojo.DEFAULT_TEMPLATES_URI_BASE, StandardCharsets.UTF_8)
+                .getTemplate("run-tests-module-pom.xml");
+        final List<Gav> gavs = IntStream.range(0, 64)
+                .mapToObj(i -> new Gav("org.foo", "foo-" + i, "1.0"))
+                .collect(Collectors.toList());
+        final List<Boolean> written = RpkgUtils.parallelMap(gavs, 8, gav -> {
+            try {
+                return GenerateTestModulesMojo.evalTemplate(template,
+                        dir.resolve(gav.getArtifactId()).resolve("pom.xml"), StandardCharsets.UTF_8, params(gav),
+                        true);
+            } catch (IOException | TemplateException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Assert.assertFalse(written.contains(Boolean.FALSE));
+        final Path sequential = dir.resolve("sequential.xml");
+        for (Gav gav : gavs) {
+            GenerateTestModulesMojo.evalTemplate(template, sequential, StandardCharsets.UTF_8, params(gav), false);
+            Assert.assertEquals(read(sequential), read(dir.resolve(gav.getArtifactId()).resolve("pom.xml")));
+        }
+    }
+
+    static TemplateParams params(Gav gav) {
+        final Gav parent = new Gav("org.foo", "foo-parent", "1.0");
+        return new TemplateParams(parent, "../pom.xml", parent.withArtifactId(gav.getArtifactId() + "-module"),
+                parent.withArtifactId("foo-rpkg"), gav, new TreeSet<>(Collections.singleton(gav)), "1.0.1");
+    }
+
+    static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    static Path touch(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, new byte[0]);
+    }
+
+    static List<PathMatcher> matchers(String... globs) {
+        final FileSystem fs = FileSystems.getDefault();
+        return Arrays.stream(globs).map(glob -> fs.getPathMatcher("glob:" + glob)).collect(Collectors.toList());
+    }
+
     void assertAddModules(String input, String expected) {
         final List<String> modules = Arrays.asList("m1", "m2");
         final Path p = Paths.get("pom.xml");
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstallStrategyTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void copy() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path source = write(dir.resolve("source.jar"), "foo");
+        final Path target = dir.resolve("repo/org/foo/target.jar");
+        InstallStrategy.COPY.install(source, target, new RecordingLog(), new AtomicBoolean());
+        assertInstalled(target, "foo");
+        Assert.assertFalse(Files.isSameFile(source, target));
+
+        /* an existing target is overwritten */
+        write(source, "bar");
+        InstallStrategy.COPY.install(source, target, new RecordingLog(), new AtomicBoolean());
+        assertInstalled(target, "bar");
+    }
+
+    @Test
+    public void hardlink() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path source = write(dir.resolve("source.jar"), "foo");
+        final Path target = dir.resolve("repo/org/foo/target.jar");
+        final RecordingLog log = new RecordingLog();
+        final AtomicBoolean fallbackReported = new AtomicBoolean();
+        InstallStrategy.HARDLINK.install(source, target, log, fallbackReported);
+        assertInstalled(target, "foo");
+        Assert.assertFalse(Files.isSymbolicLink(target));
+        Assert.assertTrue(Files.isSameFile(source, target));
+        Assert.assertEquals(0, log.warnings.size());
+    }
+
+    @Test
+    public void symlink() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path source = write(dir.resolve("source.jar"), "foo");
+        final Path target = dir.resolve("repo/org/foo/target.jar");
+        final RecordingLog log = new RecordingLog();
+        final AtomicBoolean fallbackReported = new AtomicBoolean();
+        InstallStrategy.SYMLINK.install(source, target, log, fallbackReported);
+        assertInstalled(target, "foo");
+        Assert.assertTrue(Files.isSymbolicLink(target));
+        Assert.assertEquals(source.toAbsolutePath(), Files.readSymbolicLink(target));
+        Assert.assertEquals(0, log.warnings.size());
+
+        /* copying over a link must replace the link rather than write through it */
+        final Path otherSource = write(dir.resolve("other.jar"), "bar");
+        InstallStrategy.COPY.install(otherSource, target, log, fallbackReported);
+        Assert.assertFalse(Files.isSymbolicLink(target));
+        assertInstalled(target, "bar");
+        Assert.assertEquals("foo", new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void fallbackToCopy() throws IOException {
+        /* Hard links cannot span file systems, so linking from the RAM disk to the temp dir must fall back */
+        final Path shm = Paths.get("/dev/shm");
+        Assume.assumeTrue(Files.isDirectory(shm) && Files.isWritable(shm));
+        final Path dir = tmp.getRoot().toPath();
+        /* Outside of the TemporaryFolder, thus deleted explicitly */
+        final Path sourceDir = Files.createTempDirectory(shm, InstallStrategyTest.class.getSimpleName());
+        try {
+            Assume.assumeFalse(Files.getFileStore(dir).equals(Files.getFileStore(sourceDir)));
+            final Path source = write(sourceDir.resolve("source.jar"), "foo");
+            final RecordingLog log = new RecordingLog();
+            final AtomicBoolean fallbackReported = new AtomicBoolean();
+            for (String name : new String[] { "a.jar", "b.jar" }) {
+                final Path target = dir.resolve(name);
+                InstallStrategy.HARDLINK.install(source, target, log, fallbackReported);
+                assertInstalled(target, "foo");
+                Assert.assertFalse(Files.isSymbolicLink(target));
+                Assert.assertFalse(Files.isSameFile(source, target));
+            }
+            Assert.assertEquals("only the first fallback is a warning", 1, log.warnings.size());
+            Assert.assertTrue(log.warnings.get(0), log.warnings.get(0).startsWith("Could not hardlink "));
+            Assert.assertEquals(2, log.debugs.size());
+
+            /* another execution reports its first fallback again */
+            InstallStrategy.HARDLINK.install(source, dir.resolve("c.jar"), log, new AtomicBoolean());
+            Assert.assertEquals(2, log.warnings.size());
+        } finally {
+            RpkgUtils.deleteRecursively(sourceDir);
+        }
+    }
+
+    @Test
+    public void reflinkOrCopy() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path source = write(dir.resolve("source.jar"), "foo");
+        final Path target = dir.resolve("repo/org/foo/target.jar");
+        final RecordingLog log = new RecordingLog();
+        final AtomicBoolean fallbackReported = new AtomicBoolean();
+        /* Either cloned or copied, depending on the file system */
+        InstallStrategy.REFLINK_OR_COPY.install(source, target, log, fallbackReported);
+        assertInstalled(target, "foo");
+        Assert.assertFalse(Files.isSymbolicLink(target));
+        Assert.assertFalse(Files.isSameFile(source, target));
+        for (String warning : log.warnings) {
+            Assert.assertTrue(warning, warning.contains("cp --reflink=always exited with "));
+        }
+    }
+
+    static Path write(Path path, String content) throws IOException {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void assertInstalled(Path target, String expectedContent) throws IOException {
+        Assert.assertTrue(Files.exists(target));
+        Assert.assertEquals(expectedContent, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    static class RecordingLog extends SystemStreamLog {
+        final List<String> warnings = new ArrayList<>();
+        final List<String> debugs = new ArrayList<>();
+
+        @Override
+        public void warn(CharSequence content) {
+            warnings.add(content.toString());
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {
+            debugs.add(content.toString());
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JarFilterTest {
+
+    @Test
+    public void isSelected() {
+        final JarFilter filter = new JarFilter(Arrays.asList("org/foo/", "**/*IT.class"),
+                Collections.singletonList("org/foo/slow/**"));
+        Assert.assertTrue(filter.isSelected("org/foo/FooTest.class"));
+        Assert.assertTrue(filter.isSelected("org/bar/BarIT.class"));
+        Assert.assertTrue(filter.isSelected("META-INF/MANIFEST.MF"));
+        Assert.assertFalse(filter.isSelected("org/foo/slow/SlowTest.class"));
+        Assert.assertFalse(filter.isSelected("org/bar/BarTest.class"));
+        Assert.assertFalse(filter.isSelected("fixtures/data.txt"));
+    }
+
+    @Test
+    public void filter() throws IOException {
+        final Path jar = Files.createTempFile(JarFilterTest.class.getSimpleName(), ".jar");
+        final Path filtered = Files.createTempFile(JarFilterTest.class.getSimpleName(), "-filtered.jar");
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+                TestClassIndexTest.add(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes("UTF-8"),
+                        false);
+                out.putNextEntry(new ZipEntry("org/"));
+                out.closeEntry();
+                TestClassIndexTest.add(out, "org/l2x6/rpkgtests/GavTest.class",
+                        TestClassIndexTest.classBytes(GavTest.class), false);
+                TestClassIndexTest.add(out, "org/l2x6/rpkgtests/Gav.class", TestClassIndexTest.classBytes(Gav.class),
+                        true);
+                TestClassIndexTest.add(out, "org/l2x6/rpkgtests/JarFilter.class",
+                        TestClassIndexTest.classBytes(JarFilter.class), false);
+                TestClassIndexTest.add(out, "fixtures/data.txt", "data".getBytes("UTF-8"), false);
+            }
+            final JarFilter filter = new JarFilter(Collections.singletonList("**/GavTest.class"),
+                    Collections.singletonList("org/l2x6/rpkgtests/Gav.class"));
+            Assert.assertEquals(4, filter.filter(jar, filtered));
+
+            final List<String> names = new ArrayList<>();
+            try (ZipFile zip = new ZipFile(filtered.toFile())) {
+                for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements();) {
+                    names.add(en.nextElement().getName());
+                }
+            }
+            /* Gav is excluded but referenced by GavTest */
+            Assert.assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "org/", "org/l2x6/rpkgtests/GavTest.class",
+                    "org/l2x6/rpkgtests/Gav.class"), names);
+        } finally {
+            Files.delete(jar);
+            Files.deleteIfExists(filtered);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.shared.model.fileset.FileSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelFileSetScannerTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void scan() throws IOException, MojoExecutionException, MojoFailureException {
+        final Path dir = tmp.getRoot().toPath();
+        for (String path : Arrays.asList("pom.xml", "a/pom.xml", "a/target/pom.xml", "a/b/pom.xml",
+                "a/b/other.xml", ".git/pom.xml", "c/d/e/pom.xml")) {
+            final Path file = dir.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[0]);
+        }
+        final FileSet fs = new FileSet();
+        fs.setDirectory(dir.toString());
+        fs.addInclude("**/pom.xml");
+        fs.addExclude("**/target/");
+        fs.addExclude("pom.xml");
+        for (int threads : new int[] { 1, 4 }) {
+            final List<String> actual = new ParallelFileSetScanner(fs).scan(threads);
+            Assert.assertEquals(
+                    new TreeSet<>(Arrays.asList("a" + File.separator + "pom.xml",
+                            "a" + File.separator + "b" + File.separator + "pom.xml",
+                            "c" + File.separator + "d" + File.separator + "e" + File.separator + "pom.xml")),
+                    new TreeSet<>(actual));
+        }
+    }
+
+    @Test
+    public void split() throws IOException, MojoExecutionException, MojoFailureException {
+        final Path dir = tmp.getRoot().toPath();
+        /* A single top level directory must not limit the scan to a single thread */
+        for (String path : Arrays.asList("pom.xml", "extensions/pom.xml", "extensions/a/pom.xml",
+                "extensions/a/deployment/pom.xml", "extensions/b/pom.xml", "extensions/c/runtime/pom.xml")) {
+            final Path file = dir.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[0]);
+        }
+        final FileSet fs = new FileSet();
+        fs.setDirectory(dir.toString());
+        fs.addInclude("**/pom.xml");
+        final ParallelFileSetScanner scanner = new ParallelFileSetScanner(fs);
+
+        final List<String> files = new ArrayList<>();
+        Assert.assertEquals(Arrays.asList("extensions"), scanner.split(1, files));
+        Assert.assertEquals(Arrays.asList("pom.xml"), files);
+
+        files.clear();
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("extensions" + File.separator + "a",
+                "extensions" + File.separator + "b", "extensions" + File.separator + "c")),
+                new TreeSet<>(scanner.split(3, files)));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("pom.xml", "extensions" + File.separator + "pom.xml")),
+                new TreeSet<>(files));
+
+        /* Not enough directories - the whole tree gets listed */
+        files.clear();
+        Assert.assertEquals(Collections.emptyList(), scanner.split(16, files));
+        Assert.assertEquals(6, files.size());
+
+        for (int threads : new int[] { 1, 3, 16 }) {
+            Assert.assertEquals(6, new TreeSet<>(scanner.scan(threads)).size());
+        }
+    }
+
+}
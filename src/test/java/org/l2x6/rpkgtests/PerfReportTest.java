@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PerfReportTest {
+
+    @Test
+    public void toJson() {
+        final PerfReport report = new PerfReport("rpkg\"tests", 2);
+        final Gav gav = new Gav("org.foo", "a", "1");
+        report.stop("transform", gav, report.start());
+        report.stop("download", gav, report.start());
+        report.read("download", () -> 1024);
+        report.written("transform", () -> 10);
+
+        final String json = report.toJson()
+                .replaceAll("\"(wallTimeMillis|peakHeapBytes|totalMillis|maxMillis|bytesPerSecond|download|transform)\""
+                        + ": [0-9.]+", "\"$1\": 0");
+        Assert.assertEquals("{\n" //
+                + "  \"formatVersion\": 1,\n" //
+                + "  \"goal\": \"rpkg\\\"tests\",\n" //
+                + "  \"threads\": 2,\n" //
+                + "  \"wallTimeMillis\": 0,\n" //
+                + "  \"peakHeapBytes\": 0,\n" //
+                + "  \"phases\": {\n" //
+                + "    \"download\": {\n" //
+                + "      \"count\": 1,\n" //
+                + "      \"totalMillis\": 0,\n" //
+                + "      \"maxMillis\": 0,\n" //
+                + "      \"bytesRead\": 1024,\n" //
+                + "      \"bytesWritten\": 0,\n" //
+                + "      \"bytesPerSecond\": 0\n" //
+                + "    },\n" //
+                + "    \"transform\": {\n" //
+                + "      \"count\": 1,\n" //
+                + "      \"totalMillis\": 0,\n" //
+                + "      \"maxMillis\": 0,\n" //
+                + "      \"bytesRead\": 0,\n" //
+                + "      \"bytesWritten\": 10,\n" //
+                + "      \"bytesPerSecond\": 0\n" //
+                + "    }\n" //
+                + "  },\n" //
+                + "  \"artifacts\": {\n" //
+                + "    \"org.foo:a:1\": {\n" //
+                + "      \"download\": 0,\n" //
+                + "      \"transform\": 0\n" //
+                + "    }\n" //
+                + "  }\n" //
+                + "}\n", json);
+
+        Assert.assertEquals("{\n" //
+                + "  \"formatVersion\": 1,\n" //
+                + "  \"goal\": \"empty\",\n" //
+                + "  \"threads\": 1,\n" //
+                + "  \"wallTimeMillis\": 0,\n" //
+                + "  \"peakHeapBytes\": 0,\n" //
+                + "  \"phases\": {},\n" //
+                + "  \"artifacts\": {}\n" //
+                + "}\n",
+                new PerfReport("empty", 1).toJson().replaceAll("\"(wallTimeMillis|peakHeapBytes)\": [0-9.]+", "\"$1\": 0"));
+    }
+
+    @Test
+    public void disabled() {
+        final PerfReport report = PerfReport.DISABLED;
+        report.stop("download", new Gav("org.foo", "a", "1"), report.start());
+        report.read("download", () -> {
+            throw new AssertionError("Must not be called");
+        });
+        report.written("download", () -> {
+            throw new AssertionError("Must not be called");
+        });
+        Assert.assertFalse(report.toJson().contains("download"));
+    }
+}
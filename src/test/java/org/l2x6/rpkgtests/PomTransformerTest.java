@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PomTransformerTest {
+    private static final String eol = "\n";
+    private static final String indent = "  ";
+
+    @Test
+    public void transform() throws IOException {
+        assertTransform(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + eol //
+                        + "<!-- license -->" + eol //
+                        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">" + eol //
+                        + indent + "<modelVersion>4.0.0</modelVersion>" + eol //
+                        + indent + "<parent>" + eol //
+                        + indent + indent + "<groupId>org.foo</groupId>" + eol //
+                        + indent + indent + "<artifactId>foo-parent</artifactId>" + eol //
+                        + indent + indent + "<version>1.2.3</version>" + eol //
+                        + indent + "</parent>" + eol //
+                        + indent + "<artifactId>foo</artifactId>" + eol //
+                        + indent + "<name>Foo</name>" + eol //
+                        + indent + "<description>Foo &amp; bar</description>" + eol //
+                        + indent + "<dependencyManagement>" + eol //
+                        + indent + indent + "<dependencies>" + eol //
+                        + indent + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + indent + "<groupId>org.bar</groupId>" + eol //
+                        + indent + indent + indent + indent + "<artifactId>bar</artifactId>" + eol //
+                        + indent + indent + indent + indent + "<version>1</version>" + eol //
+                        + indent + indent + indent + "</dependency>" + eol //
+                        + indent + indent + "</dependencies>" + eol //
+                        + indent + "</dependencyManagement>" + eol //
+                        + indent + "<dependencies>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>org.bar</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>bar</artifactId>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>junit</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>junit</artifactId>" + eol //
+                        + indent + indent + indent + "<scope>test</scope>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>org.baz</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>baz</artifactId>" + eol //
+                        + indent + indent + indent + "<scope>provided</scope>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + "</dependencies>" + eol //
+                        + indent + "<build>" + eol //
+                        + indent + indent + "<plugins />" + eol //
+                        + indent + "</build>" + eol //
+                        + indent + "<profiles>" + eol //
+                        + indent + indent + "<profile><id>p1</id></profile>" + eol //
+                        + indent + "</profiles>" + eol //
+                        + "</project>" + eol,
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + eol //
+                        + "<!-- license -->" + eol //
+                        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">" + eol //
+                        + indent + "<modelVersion>4.0.0</modelVersion>" + eol //
+                        + indent + "<parent>" + eol //
+                        + indent + indent + "<groupId>org.foo</groupId>" + eol //
+                        + indent + indent + "<artifactId>foo-parent</artifactId>" + eol //
+                        + indent + indent + "<version>1.2.3</version>" + eol //
+                        + indent + "</parent>" + eol //
+                        + indent + "<artifactId>foo-rpkgtests</artifactId>" + eol //
+                        + indent + "<name>Foo - Tests</name>" + eol //
+                        + indent + "<dependencyManagement>" + eol //
+                        + indent + indent + "<dependencies>" + eol //
+                        + indent + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + indent + "<groupId>org.bar</groupId>" + eol //
+                        + indent + indent + indent + indent + "<artifactId>bar</artifactId>" + eol //
+                        + indent + indent + indent + indent + "<version>1</version>" + eol //
+                        + indent + indent + indent + "</dependency>" + eol //
+                        + indent + indent + "</dependencies>" + eol //
+                        + indent + "</dependencyManagement>" + eol //
+                        + indent + "<dependencies>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>junit</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>junit</artifactId>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + indent + "<dependency>" + eol //
+                        + indent + indent + indent + "<groupId>org.foo</groupId>" + eol //
+                        + indent + indent + indent + "<artifactId>foo</artifactId>" + eol //
+                        + indent + indent + indent + "<version>1.2.3</version>" + eol //
+                        + indent + indent + "</dependency>" + eol //
+                        + indent + "</dependencies>" + eol //
+                        + "</project>" + eol);
+    }
+
+    @Test
+    public void transformNoDependencies() throws IOException {
+        assertTransform(
+                "<project>" + eol //
+                        + "    <artifactId>foo</artifactId>" + eol //
+                        + "</project>",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + eol //
+                        + "<project>" + eol //
+                        + "    <artifactId>foo-rpkgtests</artifactId>" + eol //
+                        + "    <dependencies>" + eol //
+                        + "        <dependency>" + eol //
+                        + "            <groupId>org.foo</groupId>" + eol //
+                        + "            <artifactId>foo</artifactId>" + eol //
+                        + "            <version>1.2.3</version>" + eol //
+                        + "        </dependency>" + eol //
+                        + "    </dependencies>" + eol //
+                        + "</project>" + eol);
+    }
+
+    static void assertTransform(String input, String expected) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PomTransformer(new Gav("org.foo", "foo", "1.2.3"), "foo-rpkgtests").transform(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, "pom.xml");
+        Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.l2x6.rpkgtests.RepackageAndInstallTestJarsMojo.LocalRepoArtifact;
+
+public class RepackageAndInstallTestJarsMojoTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void isLocal() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final LocalRepoArtifact release = artifact(dir, "1.0");
+        final LocalRepoArtifact snapshot = artifact(dir, "1.0-SNAPSHOT");
+        Assert.assertFalse(RepackageAndInstallTestJarsMojo.isLocal(release, true));
+
+        Files.write(dir.resolve("foo-1.0-tests.jar"), new byte[0]);
+        Assert.assertFalse("POM missing", RepackageAndInstallTestJarsMojo.isLocal(release, true));
+
+        Files.write(dir.resolve("foo-1.0.pom"), new byte[0]);
+        Assert.assertTrue(RepackageAndInstallTestJarsMojo.isLocal(release, true));
+        Assert.assertFalse("Not preferring local", RepackageAndInstallTestJarsMojo.isLocal(release, false));
+
+        Files.write(dir.resolve("foo-1.0-SNAPSHOT-tests.jar"), new byte[0]);
+        Files.write(dir.resolve("foo-1.0-SNAPSHOT.pom"), new byte[0]);
+        Assert.assertFalse("SNAPSHOTs are always resolved",
+                RepackageAndInstallTestJarsMojo.isLocal(snapshot, true));
+    }
+
+    @Test
+    public void fingerprint() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path jar = Files.write(dir.resolve("foo-1.0-tests.jar"), "abc".getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> fingerprint = new LinkedHashMap<>();
+        RepackageAndInstallTestJarsMojo.putFile(fingerprint, "jar", jar, null);
+        Assert.assertEquals("3", fingerprint.get("jar.size"));
+        Assert.assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                fingerprint.get("jar.sha256"));
+
+        final Path fingerprintPath = dir.resolve("foo-rpkgtests-1.0.fingerprint");
+        RepackageAndInstallTestJarsMojo.writeFingerprint(fingerprint, fingerprintPath);
+        final Map<String, String> stored = RepackageAndInstallTestJarsMojo.readFingerprint(fingerprintPath);
+        Assert.assertEquals(fingerprint, stored);
+
+        /* Unchanged size and mtime: the stored hash is reused without reading the file */
+        stored.put("jar.sha256", "cafe");
+        final Map<String, String> reused = new LinkedHashMap<>();
+        RepackageAndInstallTestJarsMojo.putFile(reused, "jar", jar, stored);
+        Assert.assertEquals("cafe", reused.get("jar.sha256"));
+
+        /* Changed mtime: the file is hashed again */
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() - 10000));
+        final Map<String, String> rehashed = new LinkedHashMap<>();
+        RepackageAndInstallTestJarsMojo.putFile(rehashed, "jar", jar, stored);
+        Assert.assertEquals(fingerprint.get("jar.sha256"), rehashed.get("jar.sha256"));
+
+        Assert.assertTrue(RepackageAndInstallTestJarsMojo.readFingerprint(dir.resolve("missing")).isEmpty());
+    }
+
+    @Test
+    public void createUnionCollectRequest() {
+        final List<RemoteRepository> repositories = Collections.singletonList(
+                new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2/").build());
+        /* foo is listed twice, e.g. once in testJars and once in a catalog with a version placeholder */
+        final List<Gav> artifacts = Arrays.asList(new Gav("org.foo", "foo", "1.0"), new Gav("org.bar", "bar", "2.0"),
+                new Gav("org.foo", "foo", "1.0", "${foo.version}"));
+        final CollectRequest request = RepackageAndInstallTestJarsMojo.createUnionCollectRequest(artifacts,
+                repositories);
+        Assert.assertEquals(repositories, request.getRepositories());
+        Assert.assertEquals(
+                Arrays.asList("org.foo:foo-rpkgtests:jar:1.0 (test)", "org.bar:bar-rpkgtests:jar:2.0 (test)"),
+                request.getDependencies().stream().map(Dependency::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void unionFailureMessage() {
+        final DependencyResult result = new DependencyResult(new DependencyRequest());
+        final ArtifactResult resolved = new ArtifactResult(
+                new ArtifactRequest().setArtifact(new DefaultArtifact("org.foo:foo:1.0")));
+        resolved.setArtifact(new DefaultArtifact("org.foo:foo:1.0").setFile(new File("foo-1.0.jar")));
+        result.setArtifactResults(Arrays.asList(resolved,
+                new ArtifactResult(new ArtifactRequest().setArtifact(new DefaultArtifact("org.bar:bar:2.0"))),
+                new ArtifactResult(new ArtifactRequest().setArtifact(new DefaultArtifact("org.baz:baz:jar:3.0")))));
+        Assert.assertEquals(
+                "Could not resolve the dependencies of 2 repackaged test jars; unresolved: org.bar:bar:jar:2.0, "
+                        + "org.baz:baz:jar:3.0",
+                RepackageAndInstallTestJarsMojo.unionFailureMessage(2, result));
+        Assert.assertEquals("Could not resolve the dependencies of 2 repackaged test jars",
+                RepackageAndInstallTestJarsMojo.unionFailureMessage(2, null));
+    }
+
+    @Test
+    public void fetchFailure() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path pom = Files.write(dir.resolve("foo-1.0.pom"), new byte[0]);
+        /* The POM can be resolved, the tests jar cannot */
+        final RepositorySystem repoSystem = (RepositorySystem) Proxy.newProxyInstance(
+                RepackageAndInstallTestJarsMojoTest.class.getClassLoader(), new Class<?>[] { RepositorySystem.class },
+                (proxy, method, args) -> {
+                    @SuppressWarnings("unchecked")
+                    final Collection<ArtifactRequest> requests = (Collection<ArtifactRequest>) args[1];
+                    final List<ArtifactResult> results = new ArrayList<>();
+                    for (ArtifactRequest request : requests) {
+                        final ArtifactResult result = new ArtifactResult(request);
+                        if (request.getArtifact().getExtension().equals("pom")) {
+                            result.setArtifact(request.getArtifact().setFile(pom.toFile()));
+                        }
+                        results.add(result);
+                    }
+                    throw new ArtifactResolutionException(results);
+                });
+        final RepackageAndInstallTestJarsMojo mojo = new RepackageAndInstallTestJarsMojo();
+        mojo.repoSystem = repoSystem;
+        mojo.repoSession = new DefaultRepositorySystemSession();
+        mojo.repositories = Collections.emptyList();
+        try {
+            mojo.fetch(artifact(dir, "1.0"));
+            Assert.fail("MojoFailureException expected");
+        } catch (MojoFailureException expected) {
+            Assert.assertEquals("Could not download org.foo:foo:1.0; unresolved: org.foo:foo:jar:tests:1.0",
+                    expected.getMessage());
+        }
+    }
+
+    static LocalRepoArtifact artifact(Path dir, String version) {
+        final String prefix = "foo-" + version;
+        return new LocalRepoArtifact(new Gav("org.foo", "foo", version), "foo-rpkgtests", false,
+                dir.resolve("foo-rpkgtests-" + version + ".jar"), dir.resolve("foo-rpkgtests-" + version + ".pom"),
+                dir.resolve(prefix + "-tests.jar"), dir.resolve(prefix + ".pom"),
+                dir.resolve("foo-rpkgtests-" + version + ".fingerprint"),
+                dir.resolve("foo-rpkgtests-" + version + "-test-classes.txt"));
+    }
+}
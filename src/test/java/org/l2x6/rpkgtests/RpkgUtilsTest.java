@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RpkgUtilsTest {
+
+    @Test
+    public void parallelMap() throws MojoExecutionException, MojoFailureException {
+        final List<Integer> items = Arrays.asList(5, 4, 3, 2, 1, 0);
+        final List<String> expected = Arrays.asList("5", "4", "3", "2", "1", "0");
+        for (int threads : new int[] { 1, 2, 8 }) {
+            final List<String> actual = RpkgUtils.parallelMap(items, threads, i -> {
+                sleep(i);
+                return String.valueOf(i);
+            });
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void parallelMapFailure() throws MojoExecutionException {
+        final List<Integer> items = Arrays.asList(5, 4, 3, 2, 1, 0);
+        for (int threads : new int[] { 1, 4 }) {
+            try {
+                RpkgUtils.parallelMap(items, threads, i -> {
+                    sleep(i);
+                    if (i % 2 == 0) {
+                        throw new MojoFailureException("Failed " + i);
+                    }
+                    return i;
+                });
+                Assert.fail("MojoFailureException expected");
+            } catch (MojoFailureException e) {
+                Assert.assertEquals("Failed 4", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void sha256() throws IOException {
+        final Path file = Files.createTempFile("rpkgtests", ".txt");
+        try {
+            Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                    RpkgUtils.sha256(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void slice() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4, 5 });
+        RpkgUtils.position(buffer, 1);
+        final ByteBuffer slice = RpkgUtils.slice(buffer, 2, 3);
+        Assert.assertEquals(1, buffer.position());
+        Assert.assertEquals(6, buffer.limit());
+        Assert.assertEquals(0, slice.position());
+        Assert.assertEquals(3, slice.remaining());
+        Assert.assertEquals(2, slice.get());
+        Assert.assertEquals(4, slice.get(2));
+    }
+
+    static void sleep(int i) {
+        try {
+            Thread.sleep(i * 10L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestClassIndexTest {
+
+    @Test
+    public void scan() throws IOException {
+        final byte[] concrete = classBytes(GavTest.class);
+        final byte[] abstractClass = classBytes(AbstractTestJarsConsumerMojo.class);
+        final byte[] iface = classBytes(RpkgUtils.MojoFunction.class);
+
+        final Path jar = Files.createTempFile(TestClassIndexTest.class.getSimpleName(), ".jar");
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                out.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+                add(out, "org/foo/FooTest.class", concrete, false);
+                add(out, "org/foo/StoredTests.class", concrete, true);
+                add(out, "org/foo/TestBar.class", concrete, false);
+                add(out, "org/foo/FooTest$Inner.class", concrete, false);
+                add(out, "org/foo/Helper.class", concrete, false);
+                add(out, "org/foo/AbstractFooTest.class", abstractClass, false);
+                add(out, "org/foo/FooTestCase.class", iface, false);
+            }
+            Assert.assertEquals(Arrays.asList("org.foo.FooTest", "org.foo.StoredTests", "org.foo.TestBar"),
+                    TestClassIndex.scan(jar));
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void entryData() throws IOException {
+        final byte[] classFile = classBytes(GavTest.class);
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final byte[] compressed;
+        try {
+            deflater.setInput(classFile);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            compressed = out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+        final Path jar = Paths.get("foo.jar");
+        final String name = "org/foo/FooTest.class";
+
+        final ByteBuffer data = TestClassIndex.entryData(localEntry(compressed, compressed.length), 0, 8,
+                compressed.length, classFile.length, name, jar);
+        final byte[] inflated = new byte[data.remaining()];
+        data.get(inflated);
+        Assert.assertArrayEquals(classFile, inflated);
+
+        final int truncatedLength = compressed.length / 2;
+        try {
+            TestClassIndex.entryData(localEntry(compressed, truncatedLength), 0, 8, truncatedLength, classFile.length,
+                    name, jar);
+            Assert.fail("RuntimeException expected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Could not inflate " + name + " in " + jar
+                    + ": expected " + classFile.length + " bytes, got "));
+        }
+    }
+
+    /**
+     * @return a zip local file header without name and extra fields followed by the first {@code length} bytes of
+     *         {@code compressed}
+     */
+    static ByteBuffer localEntry(byte[] compressed, int length) {
+        final byte[] bytes = new byte[30 + length];
+        System.arraycopy(compressed, 0, bytes, 30, length);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0x04034b50);
+    }
+
+    static void add(ZipOutputStream out, String name, byte[] bytes, boolean stored) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            final CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCompressedSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    static byte[] classBytes(Class<?> cl) throws IOException {
+        try (InputStream in = cl.getResourceAsStream(cl.getName().substring(cl.getName().lastIndexOf('.') + 1)
+                + ".class"); OutputStream out = new ByteArrayOutputStream()) {
+            final byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, len);
+            }
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+    }
+}
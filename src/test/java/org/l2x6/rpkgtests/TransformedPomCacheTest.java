@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransformedPomCacheTest {
+    private static final Gav FOO = new Gav("org.foo", "foo", "1.0");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void key() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final TransformedPomCache cache = new TransformedPomCache(dir.resolve("cache"), Long.MAX_VALUE);
+        final Path pom = write(dir.resolve("foo-1.0.pom"), "<project/>");
+        final String key = cache.key(FOO, "foo-rpkgtests", pom);
+        Assert.assertEquals(64, key.length());
+        Assert.assertEquals("stable", key, cache.key(FOO, "foo-rpkgtests", pom));
+        Assert.assertNotEquals(key, cache.key(FOO, "foo-other", pom));
+        Assert.assertNotEquals(key, cache.key(new Gav("org.foo", "foo", "1.1"), "foo-rpkgtests", pom));
+
+        /* The same content in another local repository or downloaded again */
+        final Path otherPom = write(Files.createDirectories(dir.resolve("other-repo")).resolve("foo-1.0.pom"),
+                "<project/>");
+        Files.setLastModifiedTime(otherPom, FileTime.fromMillis(Files.getLastModifiedTime(pom).toMillis() - 10000));
+        Assert.assertEquals("same content", key, cache.key(FOO, "foo-rpkgtests", otherPom));
+
+        write(pom, "<project></project>");
+        Assert.assertNotEquals("different content", key, cache.key(FOO, "foo-rpkgtests", pom));
+    }
+
+    @Test
+    public void getPut() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final TransformedPomCache cache = new TransformedPomCache(dir.resolve("cache"), Long.MAX_VALUE);
+        final Path pom = write(dir.resolve("foo-1.0.pom"), "<project/>");
+        final String key = cache.key(FOO, "foo-rpkgtests", pom);
+        final Path destination = dir.resolve("repo/foo-rpkgtests-1.0.pom");
+        Assert.assertFalse(cache.get(key, destination));
+        Assert.assertFalse(Files.exists(destination));
+
+        final Path transformed = write(dir.resolve("transformed.pom"), "<project><a/></project>");
+        cache.put(key, transformed);
+        Assert.assertTrue(cache.get(key, destination));
+        Assert.assertEquals("<project><a/></project>", read(destination));
+    }
+
+    @Test
+    public void evict() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path cacheDir = dir.resolve("cache");
+        /* Each entry is 10 bytes, so only two of them fit */
+        final TransformedPomCache cache = new TransformedPomCache(cacheDir, 25);
+        final Path transformed = write(dir.resolve("transformed.pom"), "0123456789");
+        final List<String> keys = Arrays.asList("aa01", "bb02", "cc03");
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < keys.size(); i++) {
+            cache.put(keys.get(i), transformed);
+            Files.setLastModifiedTime(cache.entryPath(keys.get(i)), FileTime.fromMillis(now - 30000 + i * 10000));
+        }
+        /* A hit makes the oldest entry the most recently used one */
+        Assert.assertTrue(cache.get("aa01", dir.resolve("hit.pom")));
+
+        cache.evict(new SystemStreamLog());
+        Assert.assertTrue(Files.exists(cache.entryPath("aa01")));
+        Assert.assertFalse("least recently used", Files.exists(cache.entryPath("bb02")));
+        Assert.assertTrue(Files.exists(cache.entryPath("cc03")));
+
+        cache.evict(new SystemStreamLog());
+        Assert.assertTrue("within the limit", Files.exists(cache.entryPath("aa01")));
+        Assert.assertTrue("within the limit", Files.exists(cache.entryPath("cc03")));
+    }
+
+    @Test
+    public void concurrentPut() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path cacheDir = dir.resolve("cache");
+        final TransformedPomCache cache = new TransformedPomCache(cacheDir, Long.MAX_VALUE);
+        final Path transformed = write(dir.resolve("transformed.pom"), "<project><a/></project>");
+        final List<Integer> stores = IntStream.range(0, 32).boxed().collect(Collectors.toList());
+        RpkgUtils.parallelMap(stores, 8, i -> {
+            cache.put("ab" + (i % 2), transformed);
+            return i;
+        });
+        try (Stream<Path> files = Files.list(cache.entryPath("ab0").getParent())) {
+            Assert.assertEquals("no temporary files left behind", Arrays.asList("ab0.pom", "ab1.pom"),
+                    files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        final Path destination = dir.resolve("foo-rpkgtests-1.0.pom");
+        Assert.assertTrue(cache.get("ab1", destination));
+        Assert.assertEquals("<project><a/></project>", read(destination));
+    }
+
+    static Path write(Path path, String content) throws IOException {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+}